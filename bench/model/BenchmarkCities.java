@@ -0,0 +1,93 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.IOException;
+
+/**
+ * The cities the benchmarks run on: the shipped map files, read with
+ * CityReader, and synthetic cities made by tiling city_map2.txt, with its
+ * vehicles, a number of times in each direction.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+final class BenchmarkCities {
+
+    /** The prefix of the name of a tiled city, followed by the tile count. */
+    static final String SCALED = "scaled:";
+
+    /** The map file that synthetic cities are tiled from. */
+    private static final String TILE_FILE = "city_map2.txt";
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private BenchmarkCities() {
+        // do nothing
+    }
+
+    /**
+     * Loads a city by name.
+     *
+     * @param theName A map file name, or SCALED followed by the number of
+     *            copies of city_map2.txt across and down.
+     * @return the city.
+     * @throws IOException if a map file cannot be read.
+     */
+    static CityMap load(final String theName) throws IOException {
+        final CityMap result;
+        if (theName.startsWith(SCALED)) {
+            result = tile(CityReader.load(TILE_FILE, null),
+                          Integer.parseInt(theName.substring(SCALED.length())));
+        } else {
+            result = CityReader.load(theName, null);
+        }
+        return result;
+    }
+
+    /**
+     * Makes a city of copies of a city, side by side.
+     *
+     * @param theCity The city to copy.
+     * @param theCopies The number of copies across and down.
+     * @return the tiled city.
+     */
+    private static CityMap tile(final CityMap theCity, final int theCopies) {
+        final TerrainGrid grid = theCity.getGrid();
+        final int width = grid.getWidth() * theCopies;
+        final int height = grid.getHeight() * theCopies;
+        final byte[] cells = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                cells[y * width + x] = (byte) grid.get(x % grid.getWidth(),
+                                                       y % grid.getHeight()).ordinal();
+            }
+        }
+
+        final int vehicles = theCity.getVehicleCount();
+        final int count = vehicles * theCopies * theCopies;
+        final char[] types = new char[count];
+        final int[] xs = new int[count];
+        final int[] ys = new int[count];
+        final Direction[] directions = new Direction[count];
+        int index = 0;
+        for (int row = 0; row < theCopies; row++) {
+            for (int column = 0; column < theCopies; column++) {
+                for (int i = 0; i < vehicles; i++) {
+                    types[index] = theCity.getVehicleType(i);
+                    xs[index] = theCity.getVehicleX(i) + column * grid.getWidth();
+                    ys[index] = theCity.getVehicleY(i) + row * grid.getHeight();
+                    directions[index] = theCity.getVehicleDirection(i);
+                    index++;
+                }
+            }
+        }
+        return new CityMap(new ByteTerrainGrid(width, height, cells), types, xs, ys,
+                           directions);
+    }
+}
+
+// end class BenchmarkCities
@@ -0,0 +1,56 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the allocation profiler on, so every result
+ * comes with the bytes allocated per operation. The benchmarks live in their
+ * own source folder, bench, which is not on the project's build path; they
+ * are in package model so that they can reach the package-private parts of
+ * the hot path. To run them from the project directory (where the map files
+ * are), with jmh-core and jmh-generator-annprocess on the class path:
+ *
+ * <pre>
+ * javac -cp bin:jmh-core.jar:jmh-generator-annprocess.jar -d bench-bin bench/model/*.java
+ * java -cp bin:bench-bin:jmh-core.jar:jopt-simple.jar:commons-math3.jar model.BenchmarkMain
+ * </pre>
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class BenchmarkMain {
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private BenchmarkMain() {
+        // do nothing
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param theArgs A regular expression for the benchmarks to run (all of
+     *            them if there is none).
+     * @throws RunnerException if the benchmarks cannot be run.
+     */
+    public static void main(final String... theArgs) throws RunnerException {
+        String include = "model\\..*Benchmark";
+        if (theArgs.length > 0) {
+            include = theArgs[0];
+        }
+        final Options options = new OptionsBuilder().include(include)
+            .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
+
+// end class BenchmarkMain
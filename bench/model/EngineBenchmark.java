@@ -0,0 +1,141 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the simulation as a whole: a full tick through the public
+ * step(), and the occupancy walk behind every tick's collision checks. Each
+ * runs on the shipped maps and on synthetic cities of city_map2.txt tiled 8
+ * and 32 times each way. The walk runs on an OccupancyGrid refilled from a
+ * world that moves on one untimed tick before every scan.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EngineBenchmark {
+
+    /** The seed for the random drivers, so every run is the same. */
+    private static final long SEED = 305L;
+
+    /** The number of ticks run before measuring, to get past the start. */
+    private static final int SETTLE_TICKS = 1000;
+
+    /** The city to run. */
+    @Param({"city_map1.txt", "city_map2.txt", BenchmarkCities.SCALED + "8",
+        BenchmarkCities.SCALED + "32"})
+    String myCity;
+
+    /** How each tick is run. */
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    ExecutionMode myMode;
+
+    /** The loaded city, closed when the benchmark ends. */
+    private CityMap myCityMap;
+
+    /** The simulation. */
+    private SimulationEngine myEngine;
+
+    /** The vehicles of the simulation. */
+    private List<Vehicle> myVehicles;
+
+    /** The index of which vehicles are on which square. */
+    private OccupancyGrid myOccupancy;
+
+    /**
+     * Loads the city and runs it for a while.
+     *
+     * @throws IOException if the map cannot be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        myCityMap = BenchmarkCities.load(myCity);
+        myEngine = myCityMap.newEngine();
+        myEngine.setSeed(SEED);
+        myEngine.setExecutionMode(myMode);
+        myEngine.step(SETTLE_TICKS);
+        myVehicles = myEngine.getVehicles();
+        myOccupancy = new OccupancyGrid(myEngine.getWidth(), myEngine.getHeight(),
+                                        myVehicles.size());
+        myOccupancy.fill(myVehicles);
+    }
+
+    /**
+     * Closes the city.
+     *
+     * @throws IOException if the city's file cannot be closed.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        myCityMap.close();
+    }
+
+    /**
+     * Runs one tick.
+     */
+    @Benchmark
+    public void tick() {
+        myEngine.step();
+    }
+
+    /**
+     * Walks the square of every vehicle for the others on it, where the last
+     * tick left them.
+     *
+     * @param theWorld Moves the simulation on before each scan.
+     * @return the number of vehicles sharing a square.
+     */
+    @Benchmark
+    public int collisionScan(final MovingWorld theWorld) {
+        return myOccupancy.countShared(myVehicles);
+    }
+
+    /**
+     * Moves the simulation on by one tick before every collision scan and
+     * refiles the vehicles, so the scans see the vehicles moving and
+     * colliding as they do in a run. The tick is not part of the time
+     * measured; on the small maps the scan is short enough that the per-scan
+     * setup adds noise to its time.
+     */
+    @State(Scope.Thread)
+    public static class MovingWorld {
+
+        /**
+         * Runs the benchmark's simulation for one tick.
+         *
+         * @param theBenchmark The benchmark whose simulation moves on.
+         */
+        @Setup(Level.Invocation)
+        public void advance(final EngineBenchmark theBenchmark) {
+            theBenchmark.myEngine.step();
+            theBenchmark.myOccupancy.fill(theBenchmark.myVehicles);
+        }
+    }
+}
+
+// end class EngineBenchmark
@@ -0,0 +1,98 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the decisions one vehicle makes on its turn, for each vehicle
+ * type: choosing a direction at a crossing, and canPass over every terrain
+ * under every light.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VehicleBenchmark {
+
+    /** The seed for the random drivers, so every run is the same. */
+    private static final long SEED = 305L;
+
+    /** The terrains, cached to avoid cloning Terrain.values(). */
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    /** The lights, cached to avoid cloning Light.values(). */
+    private static final Light[] LIGHTS = Light.values();
+
+    /** The map file letter of the vehicle type. */
+    @Param({"B", "A", "C", "H", "T", "X"})
+    String myType;
+
+    /** The vehicle. */
+    private AbstractVehicle myVehicle;
+
+    /** The terrain around the vehicle. */
+    private NeighborMap myNeighbors;
+
+    /**
+     * Makes the vehicle, facing north at a crossing with a different terrain
+     * each way, so that every type has somewhere to go.
+     */
+    @Setup
+    public void setUp() {
+        myVehicle = CityMap.createVehicle(myType.charAt(0), 1, 1, Direction.NORTH);
+        myVehicle.setRandom(new SplittableRandom(SEED));
+        myNeighbors = new NeighborMap();
+        myNeighbors.set(Direction.NORTH, Terrain.STREET);
+        myNeighbors.set(Direction.WEST, Terrain.GRASS);
+        myNeighbors.set(Direction.EAST, Terrain.TRAIL);
+        myNeighbors.set(Direction.SOUTH, Terrain.CROSSWALK);
+    }
+
+    /**
+     * Chooses a direction.
+     *
+     * @return the direction.
+     */
+    @Benchmark
+    public Direction chooseDirection() {
+        return myVehicle.chooseDirection(myNeighbors);
+    }
+
+    /**
+     * Asks canPass for every terrain under every light.
+     *
+     * @param theHole Consumes the answers.
+     */
+    @Benchmark
+    public void canPass(final Blackhole theHole) {
+        for (final Terrain t : TERRAINS) {
+            for (final Light l : LIGHTS) {
+                theHole.consume(myVehicle.canPass(t, l));
+            }
+        }
+    }
+}
+
+// end class VehicleBenchmark
@@ -4,9 +4,8 @@
 
 package model;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 
 /**
@@ -20,10 +19,16 @@ import java.util.Map;
  * @version 20 Oct 2017
  *
  */
-public abstract class AbstractVehicle implements Vehicle {
+public abstract class AbstractVehicle implements Vehicle, Seedable, Revivable, Parkable {
 
-    /** ArrayList that holds all of the valid terrain types for that vehicle. */
-    private List<Terrain> myValidTerrainTypes;
+    /** The directions, cached to avoid cloning Direction.values(). */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** The lights, cached to avoid cloning Light.values(). */
+    private static final Light[] LIGHTS = Light.values();
+
+    /** Terrain mask (see Terrain.maskOf) of all the terrain this vehicle can travel on. */
+    private final int myValidTerrain;
 
     /** Boolean keeps track of if the vehicle is currently alive or not. */
     private boolean myIsAlive = true;
@@ -59,8 +64,20 @@ public abstract class AbstractVehicle implements Vehicle {
     /** Boolean that represents if this vehicle has random direction behavior. */
     private final boolean myRandomDriver;
 
-    /** Boolean that represents if the vehicle prefers a specific terrain type. */
-    private final boolean myGravitatingDriver;
+    /** The terrain type the vehicle gravitates to, or null if it has no preference. */
+    private final Terrain myPreferredTerrain;
+
+    /** The vehicle's canPass rule, compiled into a lookup table. */
+    private final PassTable myPassTable;
+
+    /** The image file name of the vehicle while it is alive. */
+    private final String myImageFileName;
+
+    /** The image file name of the vehicle while it is dead. */
+    private final String myDeadImageFileName;
+
+    /** The vehicle's own random source, or null to use the shared one. */
+    private SplittableRandom myRandom;
 
 
     /**
@@ -72,12 +89,15 @@ public abstract class AbstractVehicle implements Vehicle {
      * @param theY the Y value location of the vehicle when it spawns
      * @param theDir the direction the vehicle is facing when it spawns
      * @param theDeathClock the amount of time a vehicle stays dead before respawning
+     * @param theValidTerrain the mask (see Terrain.maskOf) of terrain the vehicle can travel on
+     * @param thePassTable the vehicle's canPass rule, compiled into a table
      * @param theRandom if it is a vehicle with random direction preference
-     * @param theGravitating if the vehicle gravitates to a specific terrain type
+     * @param thePreferredTerrain the terrain the vehicle gravitates to, or null if none
      */
     protected AbstractVehicle(final int theX, final int theY, 
                               final Direction theDir, final int theDeathClock, 
-                              final boolean theRandom, final boolean theGravitating) {
+                              final int theValidTerrain, final PassTable thePassTable,
+                              final boolean theRandom, final Terrain thePreferredTerrain) {
 
         myX = theX;
         mySpawnX = theX;
@@ -86,17 +106,20 @@ public abstract class AbstractVehicle implements Vehicle {
         myOneDirection = theDir;
         mySpawnDirection = theDir;
         myDeathClock = theDeathClock;
-        validTerrain();       
+        myValidTerrain = theValidTerrain;
+        myPassTable = thePassTable;
         myRandomDriver = theRandom;
-        myGravitatingDriver = theGravitating;
+        myPreferredTerrain = thePreferredTerrain;
+        myImageFileName = toString() + ".gif";
+        myDeadImageFileName = toString() + "_dead.gif";
 
     }
 
     /**
      * Returns whether or not this object may move onto the given type of
-     * terrain, when the street lights are the given color. The only vehicle
-     * using this parent method is the ATV type, because it always is able to
-     * pass regardless of terrain and light color.
+     * terrain, when the street lights are the given color. Each vehicle type
+     * states its rule once, and it is compiled into a table when the class is
+     * loaded, so this is a single table lookup.
      * 
      * @param theTerrain The terrain.
      * @param theLight The light color.
@@ -105,7 +128,40 @@ public abstract class AbstractVehicle implements Vehicle {
      */
     @Override
     public boolean canPass(final Terrain theTerrain, final Light theLight) {
-        return true;
+        return myPassTable.get(theTerrain, theLight);
+    }
+
+    /**
+     * Returns whether this vehicle, having chosen to keep going the way it
+     * faces, is stopped from moving onto the given terrain by the light
+     * alone. Every vehicle type's canPass refuses without changing any state
+     * whenever its table does (the Taxi's wait counter only runs down at
+     * cross-walks its table lets it through), so only the table is checked.
+     * 
+     * @param theTerrain The terrain in front of the vehicle, or null.
+     * @param theLight The light color.
+     * @return true if the vehicle is waiting for the light to change.
+     */
+    @Override
+    public boolean isHeldByLight(final Terrain theTerrain, final Light theLight) {
+        boolean held = !myRandomDriver && !myPassTable.get(theTerrain, theLight);
+        if (held) {
+            held = false;
+            for (final Light other : LIGHTS) {
+                held |= myPassTable.get(theTerrain, other);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Returns the mask (see Terrain.maskOf) of the terrain this vehicle can
+     * travel on.
+     * 
+     * @return the terrain mask.
+     */
+    int getValidTerrain() {
+        return myValidTerrain;
     }
 
     /**
@@ -128,7 +184,7 @@ public abstract class AbstractVehicle implements Vehicle {
         }
 
         //Instructions for drivers who gravitate to a specific terrain type
-        if (noDirectionFound && myGravitatingDriver) {
+        if (noDirectionFound && myPreferredTerrain != null) {
             newDirection = gravitate(theNeighbors, initDirection);
             // if value is null, no direction is found
             noDirectionFound = newDirection == null; 
@@ -136,13 +192,9 @@ public abstract class AbstractVehicle implements Vehicle {
         }
 
         //Random drivers instructions
-        while (noDirectionFound && myRandomDriver) {
-            newDirection = Direction.random();
-            if ((newDirection != getDirection().reverse()) 
-                            && verifyDirection(theNeighbors.get(newDirection))) {
-                noDirectionFound = false;
-            }
-
+        if (noDirectionFound && myRandomDriver) {
+            newDirection = randomDirection(theNeighbors, initDirection, myRandom);
+            noDirectionFound = newDirection == null;
         }
         //Non random drivers instructions
         if (noDirectionFound || newDirection == null) {
@@ -175,6 +227,45 @@ public abstract class AbstractVehicle implements Vehicle {
         return newDirection;
     }
 
+    /**
+     * Helper method that picks a random direction for a random driver, other
+     * than turning around, that leads to terrain the vehicle can travel on.
+     * Each such direction is equally likely, as it was when the vehicle kept
+     * drawing random directions until it found one, but only one number is
+     * drawn.
+     * 
+     * @param theNeighbors a map of the surrounding terrain
+     * @param theDirection the direction the vehicle is heading
+     * @param theRandom the vehicle's random source, or null for the shared one
+     * @return the new direction, or null if there is none to choose from
+     */
+    private Direction randomDirection(final Map<Direction, Terrain> theNeighbors,
+                                      final Direction theDirection,
+                                      final SplittableRandom theRandom) {
+        final Direction reverse = theDirection.reverse();
+        int candidates = 0;
+        for (final Direction dir : DIRECTIONS) {
+            if (dir != reverse && verifyDirection(theNeighbors.get(dir))) {
+                candidates++;
+            }
+        }
+
+        Direction newDirection = null;
+        if (candidates > 0) {
+            int choice = Direction.randomIndex(theRandom, candidates);
+            for (final Direction dir : DIRECTIONS) {
+                if (dir != reverse && verifyDirection(theNeighbors.get(dir))) {
+                    if (choice == 0) {
+                        newDirection = dir;
+                        break;
+                    }
+                    choice--;
+                }
+            }
+        }
+        return newDirection;
+    }
+
     /**
      * Helper method that determines the direction a vehicle should go if it 
      * prefers a specific type.
@@ -186,16 +277,9 @@ public abstract class AbstractVehicle implements Vehicle {
      */
     private Direction gravitate(final Map<Direction, Terrain> theNeighbors, 
                                 final Direction theDirection) {
-        final Terrain targetTerrain;
+        final Terrain targetTerrain = myPreferredTerrain;
         Direction newDirection = null;
 
-        //Remedying this checkstyle problem will likely make the program less effective.
-        if ("human".equals(toString())) {
-            targetTerrain = Terrain.CROSSWALK;
-        } else {
-            targetTerrain = Terrain.TRAIL;
-        }
-
         if (theNeighbors.get(theDirection) == targetTerrain) {
             newDirection = theDirection;
         } else if (theNeighbors.get(theDirection.left()) == targetTerrain) {
@@ -208,50 +292,6 @@ public abstract class AbstractVehicle implements Vehicle {
     }
 
 
-    /**Helper method that determines what terrain each vehicle can travel on. */
-    private void validTerrain() {
-
-        
-        final String vehicleType = toString();
-        myValidTerrainTypes = new ArrayList<Terrain>();
-
-        /*
-         * Truck: streets, lights, cross walks
-         * Car: streets, lights, cross walks
-         * Taxi: streets, lights, cross walks
-         * ATV: all but wall
-         * Bike: streets, lights, cross walk, trails
-         * human: grass/cross walk
-         */
-
-        //Everyone can go on cross walk
-        myValidTerrainTypes.add(Terrain.CROSSWALK); 
-
-        if ("human".equals(vehicleType)) {
-            myValidTerrainTypes.add(Terrain.GRASS);
-
-        } else if ("car".equals(vehicleType) || "truck".equals(vehicleType) 
-                        || "taxi".equals(vehicleType)) { //everyone else
-            myValidTerrainTypes.add(Terrain.STREET);
-            myValidTerrainTypes.add(Terrain.LIGHT);
-
-        } else if ("bicycle".equals(vehicleType)) {
-            myValidTerrainTypes.add(Terrain.TRAIL);
-            myValidTerrainTypes.add(Terrain.STREET);
-            myValidTerrainTypes.add(Terrain.LIGHT);
-
-
-        } else if ("atv".equals(vehicleType)) {
-            myValidTerrainTypes.add(Terrain.TRAIL);
-            myValidTerrainTypes.add(Terrain.STREET);
-            myValidTerrainTypes.add(Terrain.LIGHT);
-            myValidTerrainTypes.add(Terrain.GRASS);
-        }
-
-
-    }
-
-
     /**
      * Helper method that determines if the vehicle should reverse. 
      * Used by all vehicle types.
@@ -268,9 +308,7 @@ public abstract class AbstractVehicle implements Vehicle {
         final Terrain right = theNeighbors.get(theDirection.right());
 
 
-        if (!myValidTerrainTypes.contains(init) 
-                        && !myValidTerrainTypes.contains(left) 
-                        && !myValidTerrainTypes.contains(right)) {
+        if (!verifyDirection(init) && !verifyDirection(left) && !verifyDirection(right)) {
             reverse = true;
         }
 
@@ -290,7 +328,7 @@ public abstract class AbstractVehicle implements Vehicle {
      */
     protected boolean verifyDirection(final Terrain theTerrain) {
 
-        return myValidTerrainTypes.contains(theTerrain);
+        return theTerrain != null && theTerrain.isIn(myValidTerrain);
     }
 
 
@@ -325,14 +363,15 @@ public abstract class AbstractVehicle implements Vehicle {
 
     /**
      * This method Returns the file name of the image for this Vehicle object.
+     * Both names are built once, when the vehicle is created.
      * 
      * @return the file name.
      */
     @Override
     public String getImageFileName() {
-        String name = getClass().getSimpleName().toLowerCase() + ".gif"; 
+        String name = myImageFileName; 
         if (!(isAlive())) {
-            name = getClass().getSimpleName().toLowerCase() + "_dead.gif";  
+            name = myDeadImageFileName;  
         }    
 
         return name;
@@ -393,7 +432,7 @@ public abstract class AbstractVehicle implements Vehicle {
         myBeetlejuice--;
         if (!myIsAlive && myBeetlejuice == 0) {
             myIsAlive = true;
-            setDirection(Direction.random());
+            setDirection(Direction.random(myRandom));
 
         }
     }
@@ -412,6 +451,39 @@ public abstract class AbstractVehicle implements Vehicle {
     }
 
 
+    /**
+     * Sets the random source this vehicle draws its random directions from.
+     * 
+     * @param theRandom The random source, or null for the shared one.
+     */
+    @Override
+    public void setRandom(final SplittableRandom theRandom) {
+        myRandom = theRandom;
+    }
+
+
+    /**
+     * Returns the number of pokes this vehicle needs before it revives.
+     * 
+     * @return the revival countdown.
+     */
+    @Override
+    public int getRevivalCountdown() {
+        return myBeetlejuice;
+    }
+
+
+    /**
+     * Sets the number of pokes this vehicle needs before it revives.
+     * 
+     * @param theCountdown The revival countdown.
+     */
+    @Override
+    public void setRevivalCountdown(final int theCountdown) {
+        myBeetlejuice = theCountdown;
+    }
+
+
     /**
      * Sets this object's facing direction to the given value.
      * 
@@ -23,6 +23,14 @@ public class Atv extends AbstractVehicle {
     
     /**Constant that represents time vehicle takes to recover after collision. */
     private static final int COLLISION_RECOVERY_TIME = 20;
+
+    /** Terrain this vehicle can travel on: all terrain except walls. */
+    private static final int VALID_TERRAIN = Terrain.maskOf(Terrain.GRASS, Terrain.STREET,
+                                                            Terrain.LIGHT, Terrain.TRAIL,
+                                                            Terrain.CROSSWALK);
+
+    /** This vehicle's canPass rule, compiled into a table. */
+    private static final PassTable PASS_TABLE = PassTable.compile(Atv::passes);
     
     /**
      * Constructor method that calls to the super constructor and creates an ATV object.
@@ -32,7 +40,22 @@ public class Atv extends AbstractVehicle {
      * @param theDir the direction the vehicle is facing upon spawntime.
      */
     public Atv(final int theX, final int theY, final Direction theDir) {
-        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, true, false);
+        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, VALID_TERRAIN, PASS_TABLE,
+              true, null);
+    }
+
+    /**
+     * Rule that determines if this vehicle is able to move forward in the
+     * direction its facing. It is compiled into PASS_TABLE when the class is loaded.
+     * 
+     * The ATV always is able to pass regardless of terrain and light color.
+     * 
+     * @param theTerrain The terrain.
+     * @param theLight The light color.
+     * @return always true.
+     */
+    private static boolean passes(final Terrain theTerrain, final Light theLight) {
+        return true;
     }
     
 }
@@ -52,6 +52,16 @@ public class Bicycle extends AbstractVehicle {
     /**Constant that represents time vehicle takes to recover after collision.*/
     private static final int COLLISION_RECOVERY_TIME = 30;
 
+    /** Terrain this vehicle can travel on: streets, lights, cross walks and trails. */
+    private static final int VALID_TERRAIN = Terrain.maskOf(Terrain.STREET, Terrain.LIGHT,
+                                                            Terrain.CROSSWALK, Terrain.TRAIL);
+
+    /** This vehicle's canPass rule, compiled into a table. */
+    private static final PassTable PASS_TABLE = PassTable.compile(Bicycle::passes);
+
+    /** Terrain this vehicle gravitates to. */
+    private static final Terrain PREFERRED_TERRAIN = Terrain.TRAIL;
+
     /**
      * Constructor method that calls to the super constructor and creates a Bicycle object.
      * 
@@ -60,22 +70,22 @@ public class Bicycle extends AbstractVehicle {
      * @param theDir the direction the vehicle is facing upon spawntime.
      */
     public Bicycle(final int theX, final int theY, final Direction theDir) {
-        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, false, true);
+        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, VALID_TERRAIN, PASS_TABLE,
+              false, PREFERRED_TERRAIN);
     }
 
 
     /**
-     * Method that determines if this vehicle is able to move forward in the
+     * Rule that determines if this vehicle is able to move forward in the
      * direction its facing. This is dependent on its behavior and if it is
-     * at a light or not. 
+     * at a light or not. It is compiled into PASS_TABLE when the class is loaded.
      * 
      * @param theTerrain The terrain.
      * @param theLight The light color.
      * @return whether or not this object may move onto the given type of
      *         terrain when the street lights are the given color.
      */
-    @Override
-    public boolean canPass(final Terrain theTerrain, final Light theLight) {
+    private static boolean passes(final Terrain theTerrain, final Light theLight) {
         boolean canPass = true;
 
         //stops for: All Red and Yellow Lights
@@ -0,0 +1,187 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes city maps in a binary format that can be opened by
+ * memory-mapping the file, with nothing to parse. All numbers are big-endian.
+ * The file holds:
+ * <ul>
+ * <li>a header of five ints: the MAGIC number, the VERSION, the number of
+ * rows, the number of columns and the number of vehicles;</li>
+ * <li>the grid, one byte per square holding the Terrain's ordinal, row by
+ * row;</li>
+ * <li>the vehicle table, VEHICLE_SIZE bytes per vehicle: the type letter (as
+ * in the text format) as a byte, x and y as ints, and the direction letter as
+ * a byte.</li>
+ * </ul>
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class BinaryCityMap {
+
+    /** The first four bytes of a binary map file: "EZST". */
+    public static final int MAGIC = 0x455A5354;
+
+    /** The version of the format. */
+    public static final int VERSION = 1;
+
+    /** The size in bytes of the header. */
+    static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+    /** The size in bytes of one entry in the vehicle table. */
+    static final int VEHICLE_SIZE = 2 * Byte.BYTES + 2 * Integer.BYTES;
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private BinaryCityMap() {
+        // do nothing
+    }
+
+    /**
+     * Tests whether the given file starts like a binary map file.
+     *
+     * @param thePath The file.
+     * @return true if the file starts with the MAGIC number.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isBinaryMap(final Path thePath) throws IOException {
+        boolean result = false;
+        try (FileChannel channel = FileChannel.open(thePath, StandardOpenOption.READ)) {
+            final ByteBuffer start = ByteBuffer.allocate(Integer.BYTES);
+            while (start.hasRemaining() && channel.read(start) >= 0) {
+                // keep reading until the magic number is in or the file ends
+                continue;
+            }
+            result = !start.hasRemaining() && start.getInt(0) == MAGIC;
+        }
+        return result;
+    }
+
+    /**
+     * Opens a binary map file. The grid stays mapped from the file, and is
+     * only read as the simulation touches it.
+     *
+     * @param thePath The file.
+     * @return the city.
+     * @throws IOException if the file cannot be read or is not a binary map.
+     */
+    public static CityMap open(final Path thePath) throws IOException {
+        return open(thePath, 0);
+    }
+
+    /**
+     * Opens a binary map file, keeping the grid either mapped from the file
+     * or, for maps larger than memory, in a TiledTerrainGrid that holds at
+     * most the given number of tiles in memory at once. A tiled grid keeps
+     * the file open until the map is closed.
+     *
+     * @param thePath The file.
+     * @param theResidentTiles The largest number of tiles to keep in memory,
+     *            or 0 to map the whole grid instead.
+     * @return the city.
+     * @throws IOException if the file cannot be read or is not a binary map.
+     */
+    public static CityMap open(final Path thePath, final int theResidentTiles)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(thePath, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(thePath + " is too short to be a binary map");
+            }
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                        HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(thePath + " is not a version " + VERSION
+                                      + " binary map");
+            }
+            final int rows = header.getInt();
+            final int columns = header.getInt();
+            final int numVehicles = header.getInt();
+            final long gridSize = (long) rows * columns;
+            if (rows <= 0 || columns <= 0 || numVehicles < 0
+                            || size != HEADER_SIZE + gridSize + (long) numVehicles * VEHICLE_SIZE) {
+                throw new IOException(thePath + " has the wrong size for its header");
+            }
+
+            final MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY,
+                                                       HEADER_SIZE + gridSize,
+                                                       (long) numVehicles * VEHICLE_SIZE);
+            final char[] types = new char[numVehicles];
+            final int[] xs = new int[numVehicles];
+            final int[] ys = new int[numVehicles];
+            final Direction[] directions = new Direction[numVehicles];
+            for (int index = 0; index < numVehicles; index++) {
+                types[index] = (char) table.get();
+                xs[index] = table.getInt();
+                ys[index] = table.getInt();
+                directions[index] = Direction.valueOf((char) table.get());
+                if ("BACHTX".indexOf(types[index]) < 0 || directions[index] == null) {
+                    throw new IOException("Bad vehicle " + index + " in the vehicle table");
+                }
+            }
+
+            // the grid is made last, so nothing can fail once a tiled grid
+            // has opened the file
+            final TerrainGrid grid;
+            if (theResidentTiles == 0) {
+                grid = new MappedTerrainGrid(channel, HEADER_SIZE, columns, rows);
+            } else {
+                grid = new TiledTerrainGrid(thePath, HEADER_SIZE, columns, rows,
+                                            theResidentTiles);
+            }
+            return new CityMap(grid, types, xs, ys, directions);
+        }
+    }
+
+    /**
+     * Writes a city to a binary map file.
+     *
+     * @param theMap The city.
+     * @param thePath The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(final CityMap theMap, final Path thePath) throws IOException {
+        final TerrainGrid grid = theMap.getGrid();
+        try (OutputStream file = Files.newOutputStream(thePath);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(grid.getHeight());
+            out.writeInt(grid.getWidth());
+            out.writeInt(theMap.getVehicleCount());
+
+            final byte[] row = new byte[grid.getWidth()];
+            for (int y = 0; y < grid.getHeight(); y++) {
+                for (int x = 0; x < row.length; x++) {
+                    row[x] = (byte) grid.get(x, y).ordinal();
+                }
+                out.write(row);
+            }
+
+            for (int index = 0; index < theMap.getVehicleCount(); index++) {
+                out.writeByte(theMap.getVehicleType(index));
+                out.writeInt(theMap.getVehicleX(index));
+                out.writeInt(theMap.getVehicleY(index));
+                out.writeByte(theMap.getVehicleDirection(index).letter());
+            }
+        }
+    }
+}
+
+// end class BinaryCityMap
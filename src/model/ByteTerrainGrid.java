@@ -0,0 +1,103 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+/**
+ * A terrain grid stored as one byte per square, holding the Terrain's
+ * ordinal, in a single array in row order. A grid of this kind takes an
+ * eighth of the memory of a Terrain[][] (or less, counting the row arrays)
+ * and is read with one array access.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class ByteTerrainGrid implements TerrainGrid {
+
+    /** The terrains, cached to avoid cloning Terrain.values(). */
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    /** The width of the grid, in squares. */
+    private final int myWidth;
+
+    /** The height of the grid, in squares. */
+    private final int myHeight;
+
+    /** The ordinal of the terrain of each square, indexed y * width + x. */
+    private final byte[] myCells;
+
+    /**
+     * Constructs a grid over the given terrain ordinals, without copying them.
+     *
+     * @param theWidth The width of the grid, in squares.
+     * @param theHeight The height of the grid, in squares.
+     * @param theCells The terrain ordinal of each square, indexed y * width + x.
+     */
+    ByteTerrainGrid(final int theWidth, final int theHeight, final byte[] theCells) {
+        if (theWidth <= 0 || theHeight <= 0 || (long) theWidth * theHeight != theCells.length) {
+            throw new IllegalArgumentException("A " + theWidth + " by " + theHeight
+                                               + " grid needs that many cells");
+        }
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myCells = theCells;
+    }
+
+    /**
+     * Returns a grid holding a copy of the given terrain.
+     *
+     * @param theGrid The terrain, indexed [y][x]; every row must be as long
+     *            as the first and no square may be null.
+     * @return the grid.
+     */
+    public static ByteTerrainGrid copyOf(final Terrain[][] theGrid) {
+        final int height = theGrid.length;
+        final int width = height == 0 ? 0 : theGrid[0].length;
+        final byte[] cells = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            if (theGrid[y].length != width) {
+                throw new IllegalArgumentException("Row " + y + " is not " + width + " long");
+            }
+            for (int x = 0; x < width; x++) {
+                cells[y * width + x] = (byte) theGrid[y][x].ordinal();
+            }
+        }
+        return new ByteTerrainGrid(width, height, cells);
+    }
+
+    /**
+     * Returns the width of the grid, in squares.
+     *
+     * @return the number of columns.
+     */
+    @Override
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the grid, in squares.
+     *
+     * @return the number of rows.
+     */
+    @Override
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the terrain at the given x/y position, which must be on the
+     * grid.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the terrain at that position.
+     */
+    @Override
+    public Terrain get(final int theX, final int theY) {
+        return TERRAINS[myCells[theY * myWidth + theX]];
+    }
+}
+
+// end class ByteTerrainGrid
@@ -36,6 +36,13 @@ public class Car extends AbstractVehicle {
     /** Constant variable that represents how many turns the vehicle stays 'dead'.*/
     private static final int COLLISION_RECOVERY_TIME = 10;
 
+    /** Terrain this vehicle can travel on: streets, lights and cross walks. */
+    private static final int VALID_TERRAIN = Terrain.maskOf(Terrain.STREET, Terrain.LIGHT,
+                                                            Terrain.CROSSWALK);
+
+    /** This vehicle's canPass rule, compiled into a table. */
+    private static final PassTable PASS_TABLE = PassTable.compile(Car::passes);
+
     /**
      * Constructor method that calls to the super constructor.
      * 
@@ -45,13 +52,14 @@ public class Car extends AbstractVehicle {
      */
     public Car(final int theX, final int theY, final Direction theDir) {
 
-        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, false, false);
+        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, VALID_TERRAIN, PASS_TABLE,
+              false, null);
     }
 
     /**
-     * Method that determines if this vehicle is able to move forward in the
+     * Rule that determines if this vehicle is able to move forward in the
      * direction its facing. This is dependent on its behavior and if it is
-     * at a light or not. 
+     * at a light or not. It is compiled into PASS_TABLE when the class is loaded.
      * 
      * The Car type object will be unable to pass if it is
      * at a RED or YELLOW CROSS-WALK, or at a RED LIGHT 
@@ -60,8 +68,7 @@ public class Car extends AbstractVehicle {
      * @param theLight The light color.
      * @return True if this object can pass, false if not.
      */
-    @Override
-    public boolean canPass(final Terrain theTerrain, final Light theLight) {
+    private static boolean passes(final Terrain theTerrain, final Light theLight) {
         boolean canPass = true;
 
         //stops for: red Lights, & red or yellow crosswalk
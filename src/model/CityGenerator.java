@@ -0,0 +1,316 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic cities of any size and number of vehicles, laid out
+ * like the hand-written maps: a wall around the edge, a grid of streets with
+ * a LIGHT wherever two streets cross, CROSSWALKs in the middle of some
+ * street blocks, GRASS blocks between the streets, and straight TRAILs across
+ * some blocks that end at a street at both ends, as the Bicycle expects. Each
+ * vehicle starts on terrain it can travel on, and the vehicle types come in
+ * the same proportions as in city_map1.txt. The same seed always gives the
+ * same city.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class CityGenerator {
+
+    /** The distance between neighboring parallel streets. */
+    public static final int BLOCK_SIZE = 8;
+
+    /**
+     * The smallest width or height of a city: enough for a street and some
+     * grass inside the walls, so every vehicle type has somewhere to start.
+     */
+    public static final int MIN_SIZE = 4;
+
+    /** The vehicle type letters, each listed as often as it is weighted. */
+    private static final String TYPE_MIX = "HHHHHABBBXXTTCC";
+
+    /** The chance of a crosswalk in the middle of a street block. */
+    private static final double CROSSWALK_CHANCE = 0.5;
+
+    /** The chance of a trail across a grass block. */
+    private static final double TRAIL_CHANCE = 0.25;
+
+    /** The number of random squares tried to find a free one for a vehicle. */
+    private static final int PLACEMENT_TRIES = 64;
+
+    /** The terrain mask of each vehicle type in TYPE_MIX. */
+    private static final int[] TYPE_TERRAIN = new int[TYPE_MIX.length()];
+
+    /** The terrains, cached to avoid cloning Terrain.values(). */
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    /** The directions, cached to avoid cloning Direction.values(). */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    static {
+        for (int i = 0; i < TYPE_TERRAIN.length; i++) {
+            TYPE_TERRAIN[i] = CityMap.createVehicle(TYPE_MIX.charAt(i), 0, 0, Direction.NORTH)
+                .getValidTerrain();
+        }
+    }
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private CityGenerator() {
+        // do nothing
+    }
+
+    /**
+     * Generates a city.
+     *
+     * @param theWidth The width of the city, in squares, at least MIN_SIZE.
+     * @param theHeight The height of the city, in squares, at least MIN_SIZE.
+     * @param theVehicles The number of vehicles, at least 0.
+     * @param theSeed The seed of the random choices.
+     * @return the city.
+     * @throws IllegalArgumentException if a size is too small, or there are
+     *             more vehicles of some type than free squares it can start on.
+     */
+    public static CityMap generate(final int theWidth, final int theHeight,
+                                   final int theVehicles, final long theSeed) {
+        if (theWidth < MIN_SIZE || theHeight < MIN_SIZE || theVehicles < 0
+                        || (long) theWidth * theHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot generate a " + theWidth + " by "
+                                               + theHeight + " city with " + theVehicles
+                                               + " vehicles");
+        }
+        final SplittableRandom random = new SplittableRandom(theSeed);
+        final byte[] cells = new byte[theWidth * theHeight];
+        layOut(cells, theWidth, theHeight, random);
+
+        final char[] types = new char[theVehicles];
+        final int[] xs = new int[theVehicles];
+        final int[] ys = new int[theVehicles];
+        final Direction[] directions = new Direction[theVehicles];
+        final BitSet used = new BitSet(cells.length);
+        for (int index = 0; index < theVehicles; index++) {
+            final int type = random.nextInt(TYPE_MIX.length());
+            types[index] = TYPE_MIX.charAt(type);
+            final int mask = TYPE_TERRAIN[type];
+
+            // look for a free square the vehicle can travel on
+            int cell = -1;
+            for (int attempt = 0; attempt < PLACEMENT_TRIES && cell < 0; attempt++) {
+                final int candidate = random.nextInt(cells.length);
+                if (!used.get(candidate) && TERRAINS[cells[candidate]].isIn(mask)) {
+                    cell = candidate;
+                }
+            }
+            if (cell < 0) {
+                cell = findSquare(cells, used, mask, random.nextInt(cells.length));
+            }
+            used.set(cell);
+            xs[index] = cell % theWidth;
+            ys[index] = cell / theWidth;
+            directions[index] = directionOn(cells, theWidth, cell, random);
+        }
+        return new CityMap(new ByteTerrainGrid(theWidth, theHeight, cells), types, xs, ys,
+                           directions);
+    }
+
+    /**
+     * Lays out the walls, streets, lights, crosswalks, grass and trails.
+     *
+     * @param theCells The terrain ordinal of each square, to fill.
+     * @param theWidth The width of the city.
+     * @param theHeight The height of the city.
+     * @param theRandom The random source.
+     */
+    private static void layOut(final byte[] theCells, final int theWidth,
+                               final int theHeight, final SplittableRandom theRandom) {
+        for (int y = 0; y < theHeight; y++) {
+            for (int x = 0; x < theWidth; x++) {
+                final Terrain t;
+                if (x == 0 || y == 0 || x == theWidth - 1 || y == theHeight - 1) {
+                    t = Terrain.WALL;
+                } else if (isStreetLine(x) && isStreetLine(y)) {
+                    t = Terrain.LIGHT;
+                } else if (isStreetLine(x) || isStreetLine(y)) {
+                    t = Terrain.STREET;
+                } else {
+                    t = Terrain.GRASS;
+                }
+                theCells[y * theWidth + x] = (byte) t.ordinal();
+            }
+        }
+
+        // blocks whose streets are all inside the walls get the extras
+        for (int top = 1; top + BLOCK_SIZE < theHeight - 1; top += BLOCK_SIZE) {
+            for (int left = 1; left + BLOCK_SIZE < theWidth - 1; left += BLOCK_SIZE) {
+                final int middle = BLOCK_SIZE / 2;
+                if (top > 1 && theRandom.nextDouble() < CROSSWALK_CHANCE) {
+                    set(theCells, theWidth, left + middle, top, Terrain.CROSSWALK);
+                }
+                if (left > 1 && theRandom.nextDouble() < CROSSWALK_CHANCE) {
+                    set(theCells, theWidth, left, top + middle, Terrain.CROSSWALK);
+                }
+                if (theRandom.nextDouble() < TRAIL_CHANCE) {
+                    final int offset = 1 + theRandom.nextInt(BLOCK_SIZE - 1);
+                    final boolean across = theRandom.nextBoolean();
+                    for (int i = 1; i < BLOCK_SIZE; i++) {
+                        if (across) {
+                            set(theCells, theWidth, left + i, top + offset, Terrain.TRAIL);
+                        } else {
+                            set(theCells, theWidth, left + offset, top + i, Terrain.TRAIL);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether a row or column holds a street.
+     *
+     * @param thePosition The row or column, inside the walls.
+     * @return true if there is a street along it.
+     */
+    private static boolean isStreetLine(final int thePosition) {
+        return (thePosition - 1) % BLOCK_SIZE == 0;
+    }
+
+    /**
+     * Sets the terrain of one square.
+     *
+     * @param theCells The terrain ordinal of each square.
+     * @param theWidth The width of the city.
+     * @param theX The x position.
+     * @param theY The y position.
+     * @param theTerrain The terrain.
+     */
+    private static void set(final byte[] theCells, final int theWidth, final int theX,
+                            final int theY, final Terrain theTerrain) {
+        theCells[theY * theWidth + theX] = (byte) theTerrain.ordinal();
+    }
+
+    /**
+     * Finds the first free square at or after the given one, wrapping around,
+     * that is in a terrain mask.
+     *
+     * @param theCells The terrain ordinal of each square.
+     * @param theUsed The squares that already hold a vehicle.
+     * @param theMask The terrain mask.
+     * @param theStart The square to start at.
+     * @return the square.
+     * @throws IllegalArgumentException if every square in the mask is taken.
+     */
+    private static int findSquare(final byte[] theCells, final BitSet theUsed,
+                                  final int theMask, final int theStart) {
+        int result = findSquare(theCells, theUsed, theMask, theStart, theCells.length);
+        if (result < 0) {
+            result = findSquare(theCells, theUsed, theMask, 0, theStart);
+        }
+        if (result < 0) {
+            throw new IllegalArgumentException("Too many vehicles: no free square left for"
+                                               + " another vehicle of this type");
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first free square in a range that is in a terrain mask.
+     *
+     * @param theCells The terrain ordinal of each square.
+     * @param theUsed The squares that already hold a vehicle.
+     * @param theMask The terrain mask.
+     * @param theFrom The first square of the range.
+     * @param theTo The square after the last one of the range.
+     * @return the square, or -1 if there is none.
+     */
+    private static int findSquare(final byte[] theCells, final BitSet theUsed,
+                                  final int theMask, final int theFrom, final int theTo) {
+        int result = -1;
+        for (int cell = theUsed.nextClearBit(theFrom); cell < theTo && result < 0;
+                        cell = theUsed.nextClearBit(cell + 1)) {
+            if (TERRAINS[theCells[cell]].isIn(theMask)) {
+                result = cell;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Picks the direction a vehicle starts facing: along the street or trail
+     * it stands on if there is one way to go, otherwise at random.
+     *
+     * @param theCells The terrain ordinal of each square.
+     * @param theWidth The width of the city.
+     * @param theCell The square the vehicle stands on.
+     * @param theRandom The random source.
+     * @return the direction.
+     */
+    private static Direction directionOn(final byte[] theCells, final int theWidth,
+                                         final int theCell, final SplittableRandom theRandom) {
+        Direction result = DIRECTIONS[theRandom.nextInt(DIRECTIONS.length)];
+        if (isPaved(TERRAINS[theCells[theCell]])) {
+            // every square inside the walls has squares to its left and above
+            final boolean alongRow = isPaved(TERRAINS[theCells[theCell - 1]]);
+            final boolean alongColumn = isPaved(TERRAINS[theCells[theCell - theWidth]]);
+            if (alongRow && !alongColumn) {
+                result = theRandom.nextBoolean() ? Direction.EAST : Direction.WEST;
+            } else if (alongColumn && !alongRow) {
+                result = theRandom.nextBoolean() ? Direction.NORTH : Direction.SOUTH;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a terrain is part of a street or trail.
+     *
+     * @param theTerrain The terrain.
+     * @return true for anything but grass and walls.
+     */
+    private static boolean isPaved(final Terrain theTerrain) {
+        return theTerrain != Terrain.GRASS && theTerrain != Terrain.WALL;
+    }
+
+    /**
+     * Writes a city in the text format of city_map1.txt, which CityReader
+     * reads.
+     *
+     * @param theMap The city.
+     * @param thePath The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeText(final CityMap theMap, final Path thePath) throws IOException {
+        try (Writer out = Files.newBufferedWriter(thePath, StandardCharsets.US_ASCII)) {
+            final TerrainGrid grid = theMap.getGrid();
+            out.write(grid.getHeight() + " " + grid.getWidth() + "\n");
+            final char[] row = new char[grid.getWidth()];
+            for (int y = 0; y < grid.getHeight(); y++) {
+                for (int x = 0; x < row.length; x++) {
+                    row[x] = grid.get(x, y).letter();
+                }
+                out.write(row);
+                out.write('\n');
+            }
+            out.write(theMap.getVehicleCount() + "\n");
+            for (int index = 0; index < theMap.getVehicleCount(); index++) {
+                final int x = theMap.getVehicleX(index);
+                final int y = theMap.getVehicleY(index);
+                out.write(theMap.getVehicleType(index) + " " + x + " " + y + " "
+                          + theMap.getVehicleDirection(index).letter() + " "
+                          + grid.get(x, y).letter() + "\n");
+            }
+        }
+    }
+}
+
+// end class CityGenerator
@@ -0,0 +1,197 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A city as read from a map file: the terrain grid and where each vehicle
+ * starts. A map makes as many independent simulations of the city as it is
+ * asked for; they all share its grid, which never changes. A map whose grid
+ * is read from its file a tile at a time holds the file open until the map
+ * is closed.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class CityMap implements Closeable {
+
+    /** The terrain grid. */
+    private final TerrainGrid myGrid;
+
+    /** The type letter of each vehicle, such as 'C' for a car. */
+    private final char[] myTypes;
+
+    /** The starting x coordinate of each vehicle. */
+    private final int[] myX;
+
+    /** The starting y coordinate of each vehicle. */
+    private final int[] myY;
+
+    /** The starting direction of each vehicle. */
+    private final Direction[] myDirections;
+
+    /**
+     * Constructs a map, keeping the given arrays.
+     *
+     * @param theGrid The terrain grid.
+     * @param theTypes The type letter of each vehicle.
+     * @param theX The starting x coordinate of each vehicle.
+     * @param theY The starting y coordinate of each vehicle.
+     * @param theDirections The starting direction of each vehicle.
+     */
+    CityMap(final TerrainGrid theGrid, final char[] theTypes, final int[] theX,
+            final int[] theY, final Direction[] theDirections) {
+        myGrid = theGrid;
+        myTypes = theTypes;
+        myX = theX;
+        myY = theY;
+        myDirections = theDirections;
+    }
+
+    /**
+     * Creates a vehicle of the type with the given map file letter.
+     *
+     * @param theType The type letter: B, A, C, H, T or X.
+     * @param theX The x coordinate of the vehicle.
+     * @param theY The y coordinate of the vehicle.
+     * @param theDirection The direction the vehicle faces.
+     * @return the vehicle.
+     * @throws IllegalArgumentException if the letter is not a vehicle type.
+     */
+    public static AbstractVehicle createVehicle(final char theType, final int theX,
+                                                final int theY, final Direction theDirection) {
+        final AbstractVehicle result;
+        switch (theType) {
+            case 'B': // Bicycle
+                result = new Bicycle(theX, theY, theDirection);
+                break;
+
+            case 'A': // ATV
+                result = new Atv(theX, theY, theDirection);
+                break;
+
+            case 'C': // Car
+                result = new Car(theX, theY, theDirection);
+                break;
+
+            case 'H': // Human
+                result = new Human(theX, theY, theDirection);
+                break;
+
+            case 'T': // Truck
+                result = new Truck(theX, theY, theDirection);
+                break;
+
+            case 'X': // Taxi
+                result = new Taxi(theX, theY, theDirection);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown vehicle type " + theType);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the terrain grid.
+     *
+     * @return the grid.
+     */
+    public TerrainGrid getGrid() {
+        return myGrid;
+    }
+
+    /**
+     * Returns the number of vehicles on the map.
+     *
+     * @return the number of vehicles.
+     */
+    public int getVehicleCount() {
+        return myTypes.length;
+    }
+
+    /**
+     * Returns the type letter of a vehicle.
+     *
+     * @param theIndex The index of the vehicle, in file order.
+     * @return the type letter, such as 'C' for a car.
+     */
+    public char getVehicleType(final int theIndex) {
+        return myTypes[theIndex];
+    }
+
+    /**
+     * Returns the starting x coordinate of a vehicle.
+     *
+     * @param theIndex The index of the vehicle, in file order.
+     * @return the x coordinate.
+     */
+    public int getVehicleX(final int theIndex) {
+        return myX[theIndex];
+    }
+
+    /**
+     * Returns the starting y coordinate of a vehicle.
+     *
+     * @param theIndex The index of the vehicle, in file order.
+     * @return the y coordinate.
+     */
+    public int getVehicleY(final int theIndex) {
+        return myY[theIndex];
+    }
+
+    /**
+     * Returns the starting direction of a vehicle.
+     *
+     * @param theIndex The index of the vehicle, in file order.
+     * @return the direction.
+     */
+    public Direction getVehicleDirection(final int theIndex) {
+        return myDirections[theIndex];
+    }
+
+    /**
+     * Creates a new set of the map's vehicles, at their starting positions.
+     *
+     * @return the vehicles, in file order.
+     */
+    public List<Vehicle> newVehicles() {
+        final List<Vehicle> result = new ArrayList<Vehicle>(myTypes.length);
+        for (int index = 0; index < myTypes.length; index++) {
+            result.add(createVehicle(myTypes[index], myX[index], myY[index],
+                                     myDirections[index]));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new simulation of the city, with its own vehicles.
+     *
+     * @return the simulation.
+     */
+    public SimulationEngine newEngine() {
+        return new SimulationEngine(myGrid, newVehicles());
+    }
+
+    /**
+     * Closes the file the map's grid is read from, if it is read a tile at a
+     * time; a grid that is held in memory or mapped needs no closing. The
+     * simulations of the map must not be stepped once it is closed.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (myGrid instanceof Closeable) {
+            ((Closeable) myGrid).close();
+        }
+    }
+}
+
+// end class CityMap
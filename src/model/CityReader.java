@@ -0,0 +1,387 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads city map files. A map file holds the number of rows and columns, one
+ * line of terrain letters per row, the number of vehicles and then one
+ * "type x y direction" line per vehicle.
+ *
+ * <p>The file is read in large blocks through a channel rather than line by
+ * line, each terrain letter is turned into a Terrain with one lookup in a
+ * table of all 256 byte values, and the grid is kept as one byte per square
+ * (see ByteTerrainGrid), so that even very large maps load quickly and fit in
+ * memory.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class CityReader {
+
+    /** The size in bytes of the blocks the file is read in. */
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /** The number of distinct byte values. */
+    private static final int BYTE_VALUES = 256;
+
+    /** The terrain ordinal of every byte value, just as Terrain.valueOf gives. */
+    private static final byte[] TERRAIN_OF = new byte[BYTE_VALUES];
+
+    static {
+        for (int letter = 0; letter < BYTE_VALUES; letter++) {
+            TERRAIN_OF[letter] = (byte) Terrain.valueOf((char) letter).ordinal();
+        }
+    }
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private CityReader() {
+        // do nothing
+    }
+
+    /**
+     * Reads the map from the specified file in the current working directory,
+     * falling back to a class path resource of the same name.
+     *
+     * @param theFilename The filename.
+     * @return a new simulation of the city described by the file.
+     * @throws IOException if there is a problem reading the map.
+     */
+    public static SimulationEngine read(final String theFilename) throws IOException {
+        return load(theFilename, null).newEngine();
+    }
+
+    /**
+     * Reads the map from the specified file in the current working directory,
+     * falling back to a class path resource of the same name, and reports how
+     * far it has got as it goes. A file in the binary format of BinaryCityMap
+     * is mapped instead of read.
+     *
+     * @param theFilename The filename.
+     * @param theListener The listener to report progress to, or null.
+     * @return the city described by the file.
+     * @throws IOException if there is a problem reading the map.
+     */
+    public static CityMap load(final String theFilename, final ProgressListener theListener)
+        throws IOException {
+        final Path path = Paths.get(theFilename);
+        final ReadableByteChannel channel;
+        final long size;
+        if (Files.isRegularFile(path) && BinaryCityMap.isBinaryMap(path)) {
+            final CityMap result = BinaryCityMap.open(path);
+            if (theListener != null) {
+                theListener.progress(Files.size(path), Files.size(path));
+            }
+            return result;
+        } else if (Files.isRegularFile(path)) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = Files.size(path);
+        } else {
+            final InputStream stream = CityReader.class.getResourceAsStream(theFilename);
+            if (stream == null) {
+                throw new IOException("No such file or resource: " + theFilename);
+            }
+            channel = Channels.newChannel(stream);
+            size = -1;
+        }
+
+        try {
+            final Input input = new Input(channel, size, theListener);
+            return readCity(input);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a whole map.
+     *
+     * @param theInput The input.
+     * @return the city.
+     * @throws IOException if there is a problem reading the map.
+     */
+    private static CityMap readCity(final Input theInput) throws IOException {
+        // First, we read the map description
+        final TerrainGrid grid = readGrid(theInput);
+
+        // Then, we read where the initial vehicles are
+        final int numVehicles = theInput.readInt();
+        theInput.skipLine();
+        final char[] types = new char[numVehicles];
+        final int[] xs = new int[numVehicles];
+        final int[] ys = new int[numVehicles];
+        final Direction[] directions = new Direction[numVehicles];
+        for (int lineCount = 0; lineCount < numVehicles; lineCount++) {
+            types[lineCount] = theInput.readLetter();
+            xs[lineCount] = theInput.readInt();
+            ys[lineCount] = theInput.readInt();
+            directions[lineCount] = Direction.valueOf(theInput.readLetter());
+            if ("BACHTX".indexOf(types[lineCount]) < 0 || directions[lineCount] == null) {
+                throw new IOException("Bad vehicle on line " + (lineCount + 1)
+                                      + " of the vehicle list");
+            }
+            theInput.skipLine();
+        }
+        return new CityMap(grid, types, xs, ys, directions);
+    }
+
+    /**
+     * Reads the grid portion of the map file.
+     *
+     * @param theInput The input.
+     * @return the terrain grid.
+     * @throws IOException if there is a problem reading the map.
+     */
+    private static TerrainGrid readGrid(final Input theInput) throws IOException {
+        final int numRows = theInput.readInt();
+        final int numColumns = theInput.readInt();
+        theInput.skipLine();
+        if (numRows <= 0 || numColumns <= 0 || (long) numRows * numColumns > Integer.MAX_VALUE) {
+            throw new IOException("Bad map size: " + numRows + " by " + numColumns);
+        }
+
+        final byte[] cells = new byte[numRows * numColumns];
+        for (int row = 0; row < numRows; row++) {
+            theInput.readRow(cells, row * numColumns, numColumns, row);
+            theInput.skipLine();
+        }
+        return new ByteTerrainGrid(numColumns, numRows, cells);
+    }
+
+    /**
+     * Something to tell how far the reading of a map has got.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called each time another block of the map has been read.
+         *
+         * @param theBytesRead The number of bytes read so far.
+         * @param theTotalBytes The size of the map in bytes, or -1 if unknown.
+         */
+        void progress(long theBytesRead, long theTotalBytes);
+    }
+
+    /**
+     * A map file, read a block at a time.
+     */
+    private static final class Input {
+
+        /** The channel the map is read from. */
+        private final ReadableByteChannel myChannel;
+
+        /** The size of the map in bytes, or -1 if unknown. */
+        private final long mySize;
+
+        /** The listener to report progress to, or null. */
+        private final ProgressListener myListener;
+
+        /** The block being read. */
+        private final ByteBuffer myBlock;
+
+        /** The bytes of the block being read. */
+        private final byte[] myBytes;
+
+        /** The number of bytes read from the channel so far. */
+        private long myBytesRead;
+
+        /**
+         * Constructs an input over the given channel.
+         *
+         * @param theChannel The channel.
+         * @param theSize The size of the map in bytes, or -1 if unknown.
+         * @param theListener The listener to report progress to, or null.
+         */
+        Input(final ReadableByteChannel theChannel, final long theSize,
+              final ProgressListener theListener) {
+            myChannel = theChannel;
+            mySize = theSize;
+            myListener = theListener;
+            myBlock = ByteBuffer.allocate(BLOCK_SIZE);
+            myBytes = myBlock.array();
+            myBlock.flip();
+        }
+
+        /**
+         * Makes sure there are bytes left in the block, reading the next block
+         * if needed.
+         *
+         * @return false if the end of the map has been reached.
+         * @throws IOException if there is a problem reading the map.
+         */
+        private boolean fill() throws IOException {
+            boolean result = true;
+            if (!myBlock.hasRemaining()) {
+                myBlock.clear();
+                int count = 0;
+                while (count == 0) {
+                    count = myChannel.read(myBlock);
+                }
+                myBlock.flip();
+                if (count < 0) {
+                    result = false;
+                } else {
+                    myBytesRead += count;
+                    if (myListener != null) {
+                        myListener.progress(myBytesRead, mySize);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Reads the next byte.
+         *
+         * @return the byte, from 0 to 255, or -1 at the end of the map.
+         * @throws IOException if there is a problem reading the map.
+         */
+        private int read() throws IOException {
+            int result = -1;
+            if (fill()) {
+                result = myBlock.get() & 0xFF;
+            }
+            return result;
+        }
+
+        /**
+         * Skips spaces, tabs and line ends, and reads the next byte after them.
+         *
+         * @return the byte, from 0 to 255, or -1 at the end of the map.
+         * @throws IOException if there is a problem reading the map.
+         */
+        private int readNonSpace() throws IOException {
+            int result = read();
+            while (result >= 0 && Character.isWhitespace(result)) {
+                result = read();
+            }
+            return result;
+        }
+
+        /**
+         * Reads a whole number, skipping the white space before it.
+         *
+         * @return the number.
+         * @throws IOException if there is no number or a problem reading the map.
+         */
+        int readInt() throws IOException {
+            int next = readNonSpace();
+            final boolean negative = next == '-';
+            if (negative) {
+                next = read();
+            }
+            if (next < '0' || next > '9') {
+                throw new IOException("Expected a number at byte " + position());
+            }
+            long result = 0;
+            while (next >= '0' && next <= '9') {
+                result = result * 10 + next - '0';
+                if (result > Integer.MAX_VALUE) {
+                    throw new IOException("Number too large at byte " + position());
+                }
+                next = read();
+            }
+            unread(next);
+            return (int) (negative ? -result : result);
+        }
+
+        /**
+         * Reads the first letter of the next word, skipping the rest of it.
+         *
+         * @return the letter.
+         * @throws IOException if there is no word or a problem reading the map.
+         */
+        char readLetter() throws IOException {
+            final int result = readNonSpace();
+            if (result < 0) {
+                throw new IOException("Unexpected end of map");
+            }
+            int next = read();
+            while (next >= 0 && !Character.isWhitespace(next)) {
+                next = read();
+            }
+            unread(next);
+            return (char) result;
+        }
+
+        /**
+         * Skips the rest of the current line, including its line end.
+         *
+         * @throws IOException if there is a problem reading the map.
+         */
+        void skipLine() throws IOException {
+            int next = read();
+            while (next >= 0 && next != '\n') {
+                next = read();
+            }
+        }
+
+        /**
+         * Reads one row of terrain letters straight from the block into the
+         * grid, as terrain ordinals.
+         *
+         * @param theCells The grid cells.
+         * @param theOffset The index of the row's first cell.
+         * @param theCount The number of letters in the row.
+         * @param theRow The row number, for error messages.
+         * @throws IOException if the row is short or a problem reading the map.
+         */
+        void readRow(final byte[] theCells, final int theOffset, final int theCount,
+                     final int theRow) throws IOException {
+            int cell = theOffset;
+            final int end = theOffset + theCount;
+            while (cell < end) {
+                if (!fill()) {
+                    throw new IOException("Unexpected end of map in row " + theRow);
+                }
+                final int start = myBlock.position();
+                final int stop = start + Math.min(myBlock.remaining(), end - cell);
+                for (int i = start; i < stop; i++) {
+                    final byte letter = myBytes[i];
+                    if (letter == '\n' || letter == '\r') {
+                        throw new IOException("Row " + theRow + " is too short");
+                    }
+                    theCells[cell] = TERRAIN_OF[letter & 0xFF];
+                    cell++;
+                }
+                myBlock.position(stop);
+            }
+        }
+
+        /**
+         * Puts back the byte just read, so that it is read again.
+         *
+         * @param theByte The byte, or -1 for the end of the map.
+         */
+        private void unread(final int theByte) {
+            if (theByte >= 0) {
+                myBlock.position(myBlock.position() - 1);
+            }
+        }
+
+        /**
+         * Returns the position of the next byte in the map.
+         *
+         * @return the position.
+         */
+        private long position() {
+            return myBytesRead - myBlock.remaining();
+        }
+    }
+}
+
+// end class CityReader
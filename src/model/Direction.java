@@ -5,6 +5,7 @@
 package model;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * An enumeration (and associated functionality) for directions in which a
@@ -43,6 +44,11 @@ public enum Direction {
      */
     private static final Random RANDOM = new Random();
 
+    /**
+     * The directions, cached so that random() does not clone values().
+     */
+    private static final Direction[] VALUES = values();
+
     /**
      * The letter corresponding to a particular value of the enumeration.
      */
@@ -130,7 +136,36 @@ public enum Direction {
      * @return a random Direction.
      */
     public static Direction random() {
-        return values()[RANDOM.nextInt(values().length)];
+        return VALUES[RANDOM.nextInt(VALUES.length)];
+    }
+
+    /**
+     * Returns a random Direction drawn from the given source, so that a run
+     * can be replayed from its seed. With a null source this is random().
+     * 
+     * @param theRandom The random source, or null for the shared one.
+     * @return a random Direction.
+     */
+    public static Direction random(final SplittableRandom theRandom) {
+        return VALUES[randomIndex(theRandom, VALUES.length)];
+    }
+
+    /**
+     * Returns a random index below the given bound, drawn from the given
+     * source, or from the shared one if the source is null.
+     * 
+     * @param theRandom The random source, or null for the shared one.
+     * @param theBound The number of indices to choose from.
+     * @return a random index from 0 up to, but not including, the bound.
+     */
+    static int randomIndex(final SplittableRandom theRandom, final int theBound) {
+        final int result;
+        if (theRandom == null) {
+            result = RANDOM.nextInt(theBound);
+        } else {
+            result = theRandom.nextInt(theBound);
+        }
+        return result;
     }
 
     /**
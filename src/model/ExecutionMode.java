@@ -0,0 +1,26 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+/**
+ * An enumeration of the ways a SimulationEngine can run a tick.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public enum ExecutionMode {
+    /**
+     * Move and collide the vehicles one at a time, in list order, exactly as
+     * the original GUI loop did.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Let every living vehicle choose its direction in parallel against the
+     * grid as it was at the start of the tick, then apply the moves and the
+     * collisions one vehicle at a time, in list order.
+     */
+    PARALLEL;
+}
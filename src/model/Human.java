@@ -45,6 +45,15 @@ public class Human extends AbstractVehicle {
     /** Constant variable that represents how many turns the vehicle stays 'dead'.*/
     private static final int COLLISION_RECOVERY_TIME = 50;
 
+    /** Terrain this vehicle can travel on: grass and cross walks. */
+    private static final int VALID_TERRAIN = Terrain.maskOf(Terrain.GRASS, Terrain.CROSSWALK);
+
+    /** This vehicle's canPass rule, compiled into a table. */
+    private static final PassTable PASS_TABLE = PassTable.compile(Human::passes);
+
+    /** Terrain this vehicle gravitates to. */
+    private static final Terrain PREFERRED_TERRAIN = Terrain.CROSSWALK;
+
 
     /**
      * Constructor method that calls to the super constructor and creates a Bicycle object.
@@ -54,13 +63,14 @@ public class Human extends AbstractVehicle {
      * @param theDir the direction the vehicle is facing upon spawntime.
      */
     public Human(final int theX, final int theY, final Direction theDir) {
-        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, true, true);
+        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, VALID_TERRAIN, PASS_TABLE,
+              true, PREFERRED_TERRAIN);
     }
 
     /**
-     * Method that determines if this vehicle is able to move forward in the
+     * Rule that determines if this vehicle is able to move forward in the
      * direction its facing. This is dependent on its behavior and if it is
-     * at a light or not. 
+     * at a light or not. It is compiled into PASS_TABLE when the class is loaded.
      * 
      * The Human will only pass cross-walks when the light is not green 
      * and ignores yellow and red cross-walk lights. It will never travel
@@ -71,12 +81,11 @@ public class Human extends AbstractVehicle {
      * @return whether or not this object may move onto the given type of
      *         terrain when the street lights are the given color.
      */
-    @Override
-    public boolean canPass(final Terrain theTerrain, final Light theLight) {
+    private static boolean passes(final Terrain theTerrain, final Light theLight) {
         boolean canPass = true;
 
         if ((theTerrain == Terrain.CROSSWALK && theLight == Light.GREEN) 
-                        || !verifyDirection(theTerrain))  {
+                        || theTerrain == null || !theTerrain.isIn(VALID_TERRAIN))  {
             canPass = false;
         }
         return canPass;
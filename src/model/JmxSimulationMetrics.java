@@ -0,0 +1,385 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Simulation metrics that count what a SimulationEngine does and expose the
+ * counts as a standard MBean. The counts may be read from any thread while
+ * the engine runs; each is exact on its own, though a set of them read while
+ * a tick ends may straddle it.
+ *
+ * <p>Collisions are counted for each pair of vehicle classes. Each class is
+ * given a small id the first time one of its vehicles collides, so counting
+ * a collision is an increment of a cell in a table indexed by the two ids,
+ * and allocates nothing. Past MAX_TYPES - 1 classes, the rest are counted
+ * together as "other".
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class JmxSimulationMetrics implements SimulationMetrics,
+                JmxSimulationMetricsMBean {
+
+    /** The domain and type of the MBean names. */
+    private static final String NAME_PREFIX = "EasyStreet:type=SimulationMetrics,name=";
+
+    /** The number of tick duration buckets, one per bit of a long and one for 0. */
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    /** The largest percentile. */
+    private static final double MAX_PERCENTILE = 100;
+
+    /** The number of vehicle type ids, including the one shared by the rest. */
+    private static final int MAX_TYPES = 32;
+
+    /** The id shared by the vehicle types that come after the others. */
+    private static final int OTHER = MAX_TYPES - 1;
+
+    /** The number of vehicle type ids given out so far. */
+    private static final AtomicInteger TYPE_COUNT = new AtomicInteger();
+
+    /** The name of each vehicle type id, as AbstractVehicle names them. */
+    private static final AtomicReferenceArray<String> TYPE_NAMES =
+        new AtomicReferenceArray<String>(MAX_TYPES);
+
+    /** The id of each vehicle class, given out the first time it is asked for. */
+    private static final ClassValue<Integer> TYPE_IDS = new ClassValue<Integer>() {
+        /**
+         * Gives a vehicle class the next id, and records its name.
+         *
+         * @param theType The vehicle class.
+         * @return the id.
+         */
+        @Override
+        protected Integer computeValue(final Class<?> theType) {
+            final int id = Math.min(TYPE_COUNT.getAndIncrement(), OTHER);
+            if (id < OTHER) {
+                TYPE_NAMES.set(id, theType.getSimpleName().toLowerCase(Locale.ROOT));
+            }
+            return id;
+        }
+    };
+
+    static {
+        TYPE_NAMES.set(OTHER, "other");
+    }
+
+    /** The number of ticks recorded. */
+    private final LongAdder myTicks = new LongAdder();
+
+    /** The total duration of the ticks recorded, in nanoseconds. */
+    private final LongAdder myTickNanos = new LongAdder();
+
+    /** The duration of the last tick, in nanoseconds. */
+    private volatile long myLastTickNanos;
+
+    /** The duration of the longest tick, in nanoseconds. */
+    private final AtomicLong myMaxTickNanos = new AtomicLong();
+
+    /** The number of ticks in each duration bucket. */
+    private final AtomicLongArray myHistogram = new AtomicLongArray(BUCKETS);
+
+    /** The number of moves. */
+    private final LongAdder myMoved = new LongAdder();
+
+    /** The number of blocked turns. */
+    private final LongAdder myBlocked = new LongAdder();
+
+    /** The number of blocked turns skipped while parked at a light. */
+    private final LongAdder myWaiting = new LongAdder();
+
+    /** The number of reversals. */
+    private final LongAdder myReversals = new LongAdder();
+
+    /** The number of deaths. */
+    private final LongAdder myDeaths = new LongAdder();
+
+    /** The number of revivals. */
+    private final LongAdder myRevivals = new LongAdder();
+
+    /** The number of vehicles that took turns on the last tick. */
+    private volatile int myActive;
+
+    /**
+     * The number of collisions for each pair of type ids, the lower id times
+     * MAX_TYPES plus the higher one.
+     */
+    private final AtomicLongArray myCollisions = new AtomicLongArray(MAX_TYPES * MAX_TYPES);
+
+    /**
+     * Registers these metrics with the platform MBean server, where JConsole
+     * and other JMX clients can find them.
+     *
+     * @param theName The name that tells these metrics apart from others.
+     * @return the name they were registered under.
+     * @throws JMException if they cannot be registered, for example because
+     *             the name is taken.
+     */
+    public ObjectName register(final String theName) throws JMException {
+        final ObjectName name = new ObjectName(NAME_PREFIX + ObjectName.quote(theName));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tickCompleted(final long theTimestep, final long theNanos,
+                              final int theMoved, final int theBlocked,
+                              final int theWaiting, final int theReversed,
+                              final int theActive) {
+        myTicks.increment();
+        myTickNanos.add(theNanos);
+        myLastTickNanos = theNanos;
+        myMaxTickNanos.accumulateAndGet(theNanos, Math::max);
+        myHistogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(theNanos));
+        myMoved.add(theMoved);
+        myBlocked.add(theBlocked);
+        myWaiting.add(theWaiting);
+        myReversals.add(theReversed);
+        myActive = theActive;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void collided(final Vehicle theMover, final Vehicle theOther) {
+        final int mover = TYPE_IDS.get(theMover.getClass());
+        final int other = TYPE_IDS.get(theOther.getClass());
+        myCollisions.incrementAndGet(Math.min(mover, other) * MAX_TYPES
+                                     + Math.max(mover, other));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void died(final Vehicle theVehicle) {
+        myDeaths.increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void revived(final Vehicle theVehicle) {
+        myRevivals.increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTickCount() {
+        return myTicks.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastTickNanos() {
+        return myLastTickNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMeanTickNanos() {
+        final long ticks = myTicks.sum();
+        double result = 0;
+        if (ticks > 0) {
+            result = (double) myTickNanos.sum() / ticks;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxTickNanos() {
+        return myMaxTickNanos.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getTickHistogram() {
+        final long[] result = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            result[bucket] = myHistogram.get(bucket);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTickNanosPercentile(final double thePercentile) {
+        if (!(0 <= thePercentile && thePercentile <= MAX_PERCENTILE)) {
+            throw new IllegalArgumentException("Not a percentile: " + thePercentile);
+        }
+        final long[] histogram = getTickHistogram();
+        long ticks = 0;
+        for (final long count : histogram) {
+            ticks += count;
+        }
+
+        // the rank of the tick at the percentile, counting from 1
+        final long rank = Math.max(1, (long) Math.ceil(thePercentile / MAX_PERCENTILE * ticks));
+        long result = 0;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS && seen < rank && ticks > 0; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= rank) {
+                result = upperBound(bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the least duration too long for a histogram bucket.
+     *
+     * @param theBucket The bucket.
+     * @return the upper bound, in nanoseconds, or Long.MAX_VALUE for the last
+     *         bucket.
+     */
+    private static long upperBound(final int theBucket) {
+        final long result;
+        if (theBucket == 0) {
+            result = 1;
+        } else if (theBucket >= Long.SIZE - 1) {
+            result = Long.MAX_VALUE;
+        } else {
+            result = 1L << theBucket;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getVehiclesMoved() {
+        return myMoved.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getVehiclesBlocked() {
+        return myBlocked.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getVehiclesWaiting() {
+        return myWaiting.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getReversals() {
+        return myReversals.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDeaths() {
+        return myDeaths.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRevivals() {
+        return myRevivals.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getActiveVehicles() {
+        return myActive;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getCollisions() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (int cell = 0; cell < myCollisions.length(); cell++) {
+            final long count = myCollisions.get(cell);
+            if (count > 0) {
+                final String first = TYPE_NAMES.get(cell / MAX_TYPES);
+                final String second = TYPE_NAMES.get(cell % MAX_TYPES);
+                final String pair;
+                if (first.compareTo(second) <= 0) {
+                    pair = first + '-' + second;
+                } else {
+                    pair = second + '-' + first;
+                }
+                result.put(pair, count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        myTicks.reset();
+        myTickNanos.reset();
+        myLastTickNanos = 0;
+        myMaxTickNanos.set(0);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            myHistogram.set(bucket, 0);
+        }
+        myMoved.reset();
+        myBlocked.reset();
+        myWaiting.reset();
+        myReversals.reset();
+        myDeaths.reset();
+        myRevivals.reset();
+        myActive = 0;
+        for (int cell = 0; cell < myCollisions.length(); cell++) {
+            myCollisions.set(cell, 0);
+        }
+    }
+}
+
+// end class JmxSimulationMetrics
@@ -0,0 +1,131 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.Map;
+
+/**
+ * The management interface of JmxSimulationMetrics, as seen through JMX, for
+ * example in JConsole or VisualVM.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public interface JmxSimulationMetricsMBean {
+
+    /**
+     * Returns the number of ticks recorded.
+     *
+     * @return the number of ticks.
+     */
+    long getTickCount();
+
+    /**
+     * Returns how long the last tick took.
+     *
+     * @return the duration of the last tick, in nanoseconds.
+     */
+    long getLastTickNanos();
+
+    /**
+     * Returns how long a tick took on average.
+     *
+     * @return the mean tick duration, in nanoseconds, or 0 if there were no
+     *         ticks.
+     */
+    double getMeanTickNanos();
+
+    /**
+     * Returns how long the slowest tick took.
+     *
+     * @return the longest tick duration, in nanoseconds.
+     */
+    long getMaxTickNanos();
+
+    /**
+     * Returns the histogram of tick durations. Bucket 0 counts ticks that
+     * took no measurable time, and bucket b > 0 counts ticks that took at
+     * least 2^(b-1) and less than 2^b nanoseconds.
+     *
+     * @return the number of ticks in each bucket.
+     */
+    long[] getTickHistogram();
+
+    /**
+     * Estimates a percentile of the tick durations from the histogram.
+     *
+     * @param thePercentile The percentile, between 0 and 100.
+     * @return the upper bound of the bucket holding that percentile, in
+     *         nanoseconds, or 0 if there were no ticks.
+     */
+    long getTickNanosPercentile(double thePercentile);
+
+    /**
+     * Returns the number of moves made by living vehicles.
+     *
+     * @return the number of moves.
+     */
+    long getVehiclesMoved();
+
+    /**
+     * Returns the number of turns on which a living vehicle could not move,
+     * counting the turns skipped while parked until a light changes.
+     *
+     * @return the number of blocked turns.
+     */
+    long getVehiclesBlocked();
+
+    /**
+     * Returns the number of the blocked turns that were skipped while parked
+     * until a light changes.
+     *
+     * @return the number of turns spent waiting for a light.
+     */
+    long getVehiclesWaiting();
+
+    /**
+     * Returns the number of turns on which a living vehicle turned around.
+     *
+     * @return the number of reversals.
+     */
+    long getReversals();
+
+    /**
+     * Returns the number of vehicles killed in collisions.
+     *
+     * @return the number of deaths.
+     */
+    long getDeaths();
+
+    /**
+     * Returns the number of dead vehicles that came back to life.
+     *
+     * @return the number of revivals.
+     */
+    long getRevivals();
+
+    /**
+     * Returns the number of vehicles that took turns on the last tick.
+     *
+     * @return the number of active vehicles.
+     */
+    int getActiveVehicles();
+
+    /**
+     * Returns the number of collisions between living vehicles, for each pair
+     * of vehicle types.
+     *
+     * @return the counts, keyed by the two type names in alphabetical order,
+     *         such as "car-truck".
+     */
+    Map<String, Long> getCollisions();
+
+    /**
+     * Sets every count back to zero.
+     */
+    void reset();
+}
+
+// end interface JmxSimulationMetricsMBean
@@ -0,0 +1,119 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A terrain grid read straight from a memory-mapped binary map file (see
+ * BinaryCityMap), one byte per square holding the Terrain's ordinal, in row
+ * order. Nothing is parsed or copied when the grid is opened; each square is
+ * read from the mapping when it is asked for, so opening even a very large
+ * map costs no more than the pages it touches. A mapping can cover at most
+ * 2 GB, so the grid is mapped in segments.
+ *
+ * <p>Since the squares are not read when the grid is opened, a byte that is
+ * not a terrain ordinal is only found when its square is asked for; get then
+ * reports it through an UncheckedIOException naming the square.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class MappedTerrainGrid implements TerrainGrid {
+
+    /** The number of values a byte can hold. */
+    private static final int BYTE_VALUES = 256;
+
+    /** The terrain of each byte value, or null if it is not a terrain ordinal. */
+    private static final Terrain[] TERRAINS =
+        Arrays.copyOf(Terrain.values(), BYTE_VALUES);
+
+    /** The base 2 logarithm of the size of a segment in bytes. */
+    private static final int SEGMENT_BITS = 30;
+
+    /** The size in bytes of a segment. */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    /** The width of the grid, in squares. */
+    private final int myWidth;
+
+    /** The height of the grid, in squares. */
+    private final int myHeight;
+
+    /** The mapped segments of the grid, in order. */
+    private final MappedByteBuffer[] mySegments;
+
+    /**
+     * Maps a grid stored in the given file. The caller has checked that the
+     * file is long enough to hold it.
+     *
+     * @param theChannel The open file.
+     * @param theOffset The position in the file of the grid's first square.
+     * @param theWidth The width of the grid, in squares.
+     * @param theHeight The height of the grid, in squares.
+     * @throws IOException if the grid cannot be mapped.
+     */
+    MappedTerrainGrid(final FileChannel theChannel, final long theOffset,
+                      final int theWidth, final int theHeight) throws IOException {
+        myWidth = theWidth;
+        myHeight = theHeight;
+        final long size = (long) theWidth * theHeight;
+        mySegments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+        for (int segment = 0; segment < mySegments.length; segment++) {
+            final long start = (long) segment << SEGMENT_BITS;
+            mySegments[segment] = theChannel.map(FileChannel.MapMode.READ_ONLY,
+                                                 theOffset + start,
+                                                 Math.min(SEGMENT_SIZE, size - start));
+        }
+    }
+
+    /**
+     * Returns the width of the grid, in squares.
+     *
+     * @return the number of columns.
+     */
+    @Override
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the grid, in squares.
+     *
+     * @return the number of rows.
+     */
+    @Override
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the terrain at the given x/y position, which must be on the
+     * grid.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the terrain at that position.
+     * @throws UncheckedIOException if the square does not hold a terrain.
+     */
+    @Override
+    public Terrain get(final int theX, final int theY) {
+        final long index = (long) theY * myWidth + theX;
+        final int code = mySegments[(int) (index >>> SEGMENT_BITS)]
+                        .get((int) (index & (SEGMENT_SIZE - 1))) & 0xFF;
+        final Terrain result = TERRAINS[code];
+        if (result == null) {
+            throw new UncheckedIOException(new IOException("Bad terrain " + code + " at ("
+                                                           + theX + ", " + theY + ")"));
+        }
+        return result;
+    }
+}
+
+// end class MappedTerrainGrid
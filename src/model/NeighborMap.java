@@ -0,0 +1,164 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only map of the terrain around one square, backed by a flat array
+ * indexed by Direction ordinal. The simulation refills a single instance for
+ * every vehicle instead of building a new map, so a vehicle must not hold on
+ * to the map after chooseDirection returns. Directions that lead off the map
+ * have no entry, just like the maps the GUI used to build.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+final class NeighborMap extends AbstractMap<Direction, Terrain> {
+
+    /** The directions, cached to avoid cloning Direction.values(). */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** The terrain in each direction, or null if that direction is off the map. */
+    private final Terrain[] myTerrain = new Terrain[DIRECTIONS.length];
+
+    /** The number of directions that have terrain. */
+    private int mySize;
+
+    /**
+     * Removes all of the terrain from this map so it can be refilled.
+     */
+    void reset() {
+        Arrays.fill(myTerrain, null);
+        mySize = 0;
+    }
+
+    /**
+     * Records the terrain in the given direction.
+     *
+     * @param theDirection The direction.
+     * @param theTerrain The terrain one square away in that direction.
+     */
+    void set(final Direction theDirection, final Terrain theTerrain) {
+        if (myTerrain[theDirection.ordinal()] == null) {
+            mySize++;
+        }
+        myTerrain[theDirection.ordinal()] = theTerrain;
+    }
+
+    /**
+     * Returns the terrain in the given direction.
+     *
+     * @param theKey The direction.
+     * @return the terrain, or null if that direction is off the map.
+     */
+    @Override
+    public Terrain get(final Object theKey) {
+        Terrain result = null;
+        if (theKey instanceof Direction) {
+            result = myTerrain[((Direction) theKey).ordinal()];
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether there is terrain in the given direction.
+     *
+     * @param theKey The direction.
+     * @return true if that direction is on the map, false otherwise.
+     */
+    @Override
+    public boolean containsKey(final Object theKey) {
+        return get(theKey) != null;
+    }
+
+    /**
+     * Returns the number of directions that are on the map.
+     *
+     * @return the number of entries.
+     */
+    @Override
+    public int size() {
+        return mySize;
+    }
+
+    /**
+     * Returns a read-only view of the entries, in Direction order.
+     *
+     * @return the entries.
+     */
+    @Override
+    public Set<Map.Entry<Direction, Terrain>> entrySet() {
+        return new AbstractSet<Map.Entry<Direction, Terrain>>() {
+            @Override
+            public Iterator<Map.Entry<Direction, Terrain>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return mySize;
+            }
+        };
+    }
+
+    /**
+     * Iterates over the directions that have terrain, in Direction order.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<Direction, Terrain>> {
+
+        /** The ordinal of the next direction to return. */
+        private int myNext = advance(0);
+
+        /**
+         * Returns whether there are more entries.
+         *
+         * @return true if there is another entry.
+         */
+        @Override
+        public boolean hasNext() {
+            return myNext < DIRECTIONS.length;
+        }
+
+        /**
+         * Returns the next entry.
+         *
+         * @return the next entry.
+         */
+        @Override
+        public Map.Entry<Direction, Terrain> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<Direction, Terrain> result =
+                new AbstractMap.SimpleImmutableEntry<Direction, Terrain>(DIRECTIONS[myNext],
+                                                                         myTerrain[myNext]);
+            myNext = advance(myNext + 1);
+            return result;
+        }
+
+        /**
+         * Finds the first direction at or after the given ordinal that has terrain.
+         *
+         * @param theStart The ordinal to start looking at.
+         * @return the ordinal found, or the number of directions if there is none.
+         */
+        private int advance(final int theStart) {
+            int result = theStart;
+            while (result < DIRECTIONS.length && myTerrain[result] == null) {
+                result++;
+            }
+            return result;
+        }
+    }
+}
+
+// end class NeighborMap
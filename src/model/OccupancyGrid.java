@@ -0,0 +1,316 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An index of which vehicles occupy which square of the map. Every square
+ * keeps a singly linked list of the vehicles standing on it, threaded through
+ * primitive arrays and kept in vehicle (update) order, so that collision
+ * checks only ever look at vehicles that share a square. Vehicles are named by
+ * their position in the simulation's vehicle list. On small maps the head of
+ * every square's list is kept in an array; on maps too large for that, only
+ * the squares that have vehicles on them are kept, in a hash table.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+final class OccupancyGrid {
+
+    /** Marks the end of a list, or a square with no vehicles on it. */
+    static final int NONE = -1;
+
+    /** The largest number of squares to keep a head for each of. */
+    private static final long DENSE_LIMIT = 1L << 22;
+
+    /** Marks an empty slot of the hash table. */
+    private static final long EMPTY = -1L;
+
+    /** The multiplier used to hash square numbers (the golden ratio). */
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** The width of the map, in squares. */
+    private final int myWidth;
+
+    /** The height of the map, in squares. */
+    private final int myHeight;
+
+    /**
+     * The first vehicle on each square, indexed y * width + x, or null if the
+     * map is too large. The extra last entry collects any vehicle that has
+     * left the map.
+     */
+    private final int[] myHeads;
+
+    /** The squares in the hash table, or EMPTY; null if myHeads is used. */
+    private final long[] myKeys;
+
+    /** The first vehicle on the square in each slot of the hash table. */
+    private final int[] myValues;
+
+    /** The number of bits to shift a hash right to get a slot. */
+    private final int myShift;
+
+    /** The vehicle after each vehicle on the same square. */
+    private final int[] myNext;
+
+    /** The square each vehicle is currently filed under. */
+    private final long[] myCells;
+
+    /**
+     * Constructs an empty index for a map and a number of vehicles.
+     *
+     * @param theWidth The width of the map, in squares.
+     * @param theHeight The height of the map, in squares.
+     * @param theVehicles The number of vehicles to track.
+     */
+    OccupancyGrid(final int theWidth, final int theHeight, final int theVehicles) {
+        myWidth = theWidth;
+        myHeight = theHeight;
+        final long squares = (long) theWidth * theHeight;
+        if (squares <= DENSE_LIMIT) {
+            myHeads = new int[(int) squares + 1];
+            myKeys = null;
+            myValues = null;
+            myShift = 0;
+        } else {
+            // at most one square per vehicle, plus the off-map list, is in use
+            final int slots = Integer.highestOneBit(2 * (theVehicles + 1)) * 2;
+            myHeads = null;
+            myKeys = new long[slots];
+            myValues = new int[slots];
+            myShift = Long.SIZE - Integer.numberOfTrailingZeros(slots);
+        }
+        myNext = new int[theVehicles];
+        myCells = new long[theVehicles];
+        clear();
+    }
+
+    /**
+     * Removes every vehicle from the index.
+     */
+    void clear() {
+        if (myHeads == null) {
+            Arrays.fill(myKeys, EMPTY);
+        } else {
+            Arrays.fill(myHeads, NONE);
+        }
+        Arrays.fill(myNext, NONE);
+        Arrays.fill(myCells, NONE);
+    }
+
+    /**
+     * Refiles every vehicle under the square it is on now.
+     *
+     * @param theVehicles The vehicles, in simulation order.
+     */
+    void fill(final List<Vehicle> theVehicles) {
+        clear();
+        for (int index = 0; index < theVehicles.size(); index++) {
+            final Vehicle v = theVehicles.get(index);
+            add(index, v.getX(), v.getY());
+        }
+    }
+
+    /**
+     * Counts the vehicles that share a square with another vehicle, walking
+     * each vehicle's square as the simulation's collision checks do.
+     *
+     * @param theVehicles The vehicles, in simulation order.
+     * @return the number of vehicles with company on their square.
+     */
+    int countShared(final List<Vehicle> theVehicles) {
+        int result = 0;
+        for (int index = 0; index < theVehicles.size(); index++) {
+            final Vehicle v = theVehicles.get(index);
+            for (int other = first(v.getX(), v.getY()); other != NONE;
+                            other = next(other)) {
+                final Vehicle o = theVehicles.get(other);
+                if (other != index && o.getX() == v.getX() && o.getY() == v.getY()) {
+                    result++;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Files a vehicle under the square at the given position.
+     *
+     * @param theVehicle The vehicle's index.
+     * @param theX The x position.
+     * @param theY The y position.
+     */
+    void add(final int theVehicle, final int theX, final int theY) {
+        final long cell = cellOf(theX, theY);
+        myCells[theVehicle] = cell;
+
+        // keep each square's list in vehicle order
+        int previous = NONE;
+        int current = head(cell);
+        while (current != NONE && current < theVehicle) {
+            previous = current;
+            current = myNext[current];
+        }
+        myNext[theVehicle] = current;
+        if (previous == NONE) {
+            setHead(cell, theVehicle);
+        } else {
+            myNext[previous] = theVehicle;
+        }
+    }
+
+    /**
+     * Records that a vehicle is now at the given position, refiling it if it
+     * changed squares.
+     *
+     * @param theVehicle The vehicle's index.
+     * @param theX The new x position.
+     * @param theY The new y position.
+     */
+    void move(final int theVehicle, final int theX, final int theY) {
+        if (myCells[theVehicle] != cellOf(theX, theY)) {
+            remove(theVehicle);
+            add(theVehicle, theX, theY);
+        }
+    }
+
+    /**
+     * Returns the first vehicle filed under the square at the given position.
+     * Vehicles that have left the map all share one list, so callers should
+     * still compare coordinates.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the lowest index of a vehicle on that square, or NONE.
+     */
+    int first(final int theX, final int theY) {
+        return head(cellOf(theX, theY));
+    }
+
+    /**
+     * Returns the next vehicle filed under the same square as the given one.
+     *
+     * @param theVehicle The vehicle's index.
+     * @return the next vehicle's index, or NONE.
+     */
+    int next(final int theVehicle) {
+        return myNext[theVehicle];
+    }
+
+    /**
+     * Unlinks a vehicle from the list of the square it is filed under.
+     *
+     * @param theVehicle The vehicle's index.
+     */
+    private void remove(final int theVehicle) {
+        final long cell = myCells[theVehicle];
+        int previous = NONE;
+        int current = head(cell);
+        while (current != theVehicle) {
+            previous = current;
+            current = myNext[current];
+        }
+        if (previous == NONE) {
+            setHead(cell, myNext[theVehicle]);
+        } else {
+            myNext[previous] = myNext[theVehicle];
+        }
+        myNext[theVehicle] = NONE;
+        myCells[theVehicle] = NONE;
+    }
+
+    /**
+     * Returns the list a position is filed under.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the square's index, or the off-map list for positions off the map.
+     */
+    private long cellOf(final int theX, final int theY) {
+        final long cell;
+        if (0 <= theX && theX < myWidth && 0 <= theY && theY < myHeight) {
+            cell = (long) theY * myWidth + theX;
+        } else {
+            cell = (long) myWidth * myHeight;
+        }
+        return cell;
+    }
+
+    /**
+     * Returns the first vehicle filed under a square.
+     *
+     * @param theCell The square's index.
+     * @return the lowest index of a vehicle on that square, or NONE.
+     */
+    private int head(final long theCell) {
+        int result = NONE;
+        if (myHeads == null) {
+            int slot = slotOf(theCell);
+            while (myKeys[slot] != EMPTY && result == NONE) {
+                if (myKeys[slot] == theCell) {
+                    result = myValues[slot];
+                }
+                slot = (slot + 1) & (myKeys.length - 1);
+            }
+        } else {
+            result = myHeads[(int) theCell];
+        }
+        return result;
+    }
+
+    /**
+     * Sets the first vehicle filed under a square. In the hash table, a
+     * square whose list becomes empty is removed, and the entries after it
+     * are shifted back so that no lookup has to step over a gap.
+     *
+     * @param theCell The square's index.
+     * @param theVehicle The vehicle's index, or NONE.
+     */
+    private void setHead(final long theCell, final int theVehicle) {
+        if (myHeads == null) {
+            final int mask = myKeys.length - 1;
+            int slot = slotOf(theCell);
+            while (myKeys[slot] != EMPTY && myKeys[slot] != theCell) {
+                slot = (slot + 1) & mask;
+            }
+            if (theVehicle != NONE) {
+                myKeys[slot] = theCell;
+                myValues[slot] = theVehicle;
+            } else if (myKeys[slot] == theCell) {
+                int gap = slot;
+                int next = (gap + 1) & mask;
+                while (myKeys[next] != EMPTY) {
+                    // move the entry back if the gap lies between its home and it
+                    final int home = slotOf(myKeys[next]);
+                    if (((next - home) & mask) >= ((next - gap) & mask)) {
+                        myKeys[gap] = myKeys[next];
+                        myValues[gap] = myValues[next];
+                        gap = next;
+                    }
+                    next = (next + 1) & mask;
+                }
+                myKeys[gap] = EMPTY;
+            }
+        } else {
+            myHeads[(int) theCell] = theVehicle;
+        }
+    }
+
+    /**
+     * Returns the hash table slot a square's search starts at.
+     *
+     * @param theCell The square's index.
+     * @return the slot.
+     */
+    private int slotOf(final long theCell) {
+        return (int) ((theCell * HASH_MULTIPLIER) >>> myShift);
+    }
+}
+
+// end class OccupancyGrid
@@ -0,0 +1,31 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+/**
+ * A vehicle that can tell when nothing but the light is holding it up. A
+ * SimulationEngine stops giving turns to such a vehicle while it waits, since
+ * it would make the same choice and be refused in the same way on every turn
+ * until the light changes.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+interface Parkable {
+
+    /**
+     * Returns whether this vehicle, having chosen to keep going the way it
+     * faces, is stopped from moving onto the given terrain by the light alone:
+     * it never chooses at random, it cannot pass under this light without
+     * any change to its state, and it could pass under some other light.
+     *
+     * @param theTerrain The terrain in front of the vehicle, or null.
+     * @param theLight The light color.
+     * @return true if the vehicle is waiting for the light to change.
+     */
+    boolean isHeldByLight(Terrain theTerrain, Light theLight);
+}
+
+// end interface Parkable
@@ -0,0 +1,97 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+/**
+ * A passability rule compiled into a lookup table with one entry for every
+ * combination of Terrain and Light, so that applying the rule on every move is
+ * a single array read. Null terrain (off the map) and a null light each get an
+ * entry of their own, so the table answers exactly what the rule would.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+final class PassTable {
+
+    /** The terrains, cached to avoid cloning Terrain.values(). */
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    /** The lights, cached to avoid cloning Light.values(). */
+    private static final Light[] LIGHTS = Light.values();
+
+    /** The number of entries per terrain: one per light, plus one for null. */
+    private static final int ROW_LENGTH = LIGHTS.length + 1;
+
+    /** The answers, indexed by terrain * ROW_LENGTH + light. */
+    private final boolean[] myTable;
+
+    /**
+     * Constructs a table from its answers.
+     *
+     * @param theTable The answers, indexed by terrain * ROW_LENGTH + light.
+     */
+    private PassTable(final boolean[] theTable) {
+        myTable = theTable;
+    }
+
+    /**
+     * Evaluates a rule for every combination of Terrain and Light, including
+     * null terrain and a null light, and stores the answers.
+     *
+     * @param theRule The rule to compile.
+     * @return the compiled table.
+     */
+    static PassTable compile(final Rule theRule) {
+        final boolean[] table = new boolean[(TERRAINS.length + 1) * ROW_LENGTH];
+        for (int terrain = 0; terrain <= TERRAINS.length; terrain++) {
+            for (int light = 0; light <= LIGHTS.length; light++) {
+                table[terrain * ROW_LENGTH + light] =
+                    theRule.get(terrain < TERRAINS.length ? TERRAINS[terrain] : null,
+                                light < LIGHTS.length ? LIGHTS[light] : null);
+            }
+        }
+        return new PassTable(table);
+    }
+
+    /**
+     * Looks up the rule's answer for the given terrain and light.
+     *
+     * @param theTerrain The terrain, or null.
+     * @param theLight The light color, or null.
+     * @return the answer the rule gives for that terrain and light.
+     */
+    boolean get(final Terrain theTerrain, final Light theLight) {
+        final int terrain;
+        if (theTerrain == null) {
+            terrain = TERRAINS.length;
+        } else {
+            terrain = theTerrain.ordinal();
+        }
+        final int light;
+        if (theLight == null) {
+            light = LIGHTS.length;
+        } else {
+            light = theLight.ordinal();
+        }
+        return myTable[terrain * ROW_LENGTH + light];
+    }
+
+    /**
+     * A rule about moving onto a terrain under a light color.
+     */
+    interface Rule {
+
+        /**
+         * Answers the rule for the given terrain and light.
+         *
+         * @param theTerrain The terrain, or null.
+         * @param theLight The light color, or null.
+         * @return the rule's answer.
+         */
+        boolean get(Terrain theTerrain, Light theLight);
+    }
+}
+
+// end class PassTable
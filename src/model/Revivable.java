@@ -0,0 +1,34 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+/**
+ * A vehicle whose revival countdown can be read and set. A SimulationEngine
+ * uses this to stop poking a dead vehicle that is alone on its square: it
+ * reads how many pokes the vehicle has left, schedules its revival, and when
+ * the vehicle has to take turns again, sets the countdown to what the skipped
+ * pokes would have left.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+interface Revivable {
+
+    /**
+     * Returns the number of pokes a dead vehicle needs before it revives.
+     *
+     * @return the revival countdown.
+     */
+    int getRevivalCountdown();
+
+    /**
+     * Sets the number of pokes a dead vehicle needs before it revives.
+     *
+     * @param theCountdown The revival countdown, at least 1.
+     */
+    void setRevivalCountdown(int theCountdown);
+}
+
+// end interface Revivable
@@ -0,0 +1,182 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs many short, independent scenarios, such as the points of a parameter
+ * sweep, each on a thread of its own. Scenarios may block on file output as
+ * much as they like; only their CPU-bound phases are limited, by a pool of
+ * permits, to as many at a time as there are cores. A scenario runs its
+ * simulation through step (or other heavy work through compute), which holds
+ * a permit while it works and gives it up every TICKS_PER_PERMIT ticks, so a
+ * long scenario cannot keep shorter ones waiting.
+ *
+ * <p>On a Java runtime with virtual threads, each scenario runs on a virtual
+ * thread, so tens of thousands of blocked scenarios cost little. The executor
+ * looks them up when it is constructed, so it also runs on older runtimes,
+ * where it falls back to a pool of platform threads that grows as needed.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class ScenarioExecutor implements AutoCloseable {
+
+    /** The most ticks run while holding one permit. */
+    public static final int TICKS_PER_PERMIT = 4096;
+
+    /** The name of the factory method of a virtual thread per task executor. */
+    private static final String VIRTUAL_FACTORY = "newVirtualThreadPerTaskExecutor";
+
+    /** The threads the scenarios run on. */
+    private final ExecutorService myScenarios;
+
+    /** Whether the scenarios run on virtual threads. */
+    private final boolean myVirtual;
+
+    /** The permits to run a CPU-bound phase. */
+    private final Semaphore myCpu;
+
+    /** The number of permits to run a CPU-bound phase. */
+    private final int myCpuPermits;
+
+    /**
+     * Constructs an executor that runs as many CPU-bound phases at a time as
+     * there are processors.
+     */
+    public ScenarioExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an executor that runs at most the given number of CPU-bound
+     * phases at a time.
+     *
+     * @param theCpuPermits The number of CPU-bound phases that may run at
+     *            once, at least 1.
+     */
+    public ScenarioExecutor(final int theCpuPermits) {
+        if (theCpuPermits <= 0) {
+            throw new IllegalArgumentException("There must be at least one CPU permit");
+        }
+        myCpuPermits = theCpuPermits;
+        myCpu = new Semaphore(theCpuPermits, true);
+
+        ExecutorService scenarios;
+        boolean virtual;
+        try {
+            scenarios = (ExecutorService) Executors.class.getMethod(VIRTUAL_FACTORY)
+                .invoke(null);
+            virtual = true;
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // no virtual threads (before Java 21, or a preview not enabled)
+            scenarios = Executors.newCachedThreadPool();
+            virtual = false;
+        }
+        myScenarios = scenarios;
+        myVirtual = virtual;
+    }
+
+    /**
+     * Returns whether scenarios run on virtual threads.
+     *
+     * @return true on a runtime with virtual threads, false if scenarios run
+     *         on platform threads.
+     */
+    public boolean isVirtual() {
+        return myVirtual;
+    }
+
+    /**
+     * Returns the number of CPU-bound phases that may run at once.
+     *
+     * @return the number of permits.
+     */
+    public int getCpuPermits() {
+        return myCpuPermits;
+    }
+
+    /**
+     * Starts a scenario on a thread of its own.
+     *
+     * @param <T> The type of the scenario's result.
+     * @param theScenario The scenario, which should run its CPU-bound phases
+     *            through step or compute.
+     * @return the future result of the scenario.
+     */
+    public <T> Future<T> submit(final Callable<T> theScenario) {
+        return myScenarios.submit(theScenario);
+    }
+
+    /**
+     * Advances a simulation by the given number of ticks, holding a permit
+     * for at most TICKS_PER_PERMIT ticks at a time. This is meant to be called
+     * from a scenario.
+     *
+     * @param theEngine The simulation, which no other thread may be using.
+     * @param theTicks The number of ticks to run.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     *             for a permit.
+     */
+    public void step(final SimulationEngine theEngine, final long theTicks)
+        throws InterruptedException {
+        long left = theTicks;
+        while (left > 0) {
+            final long ticks = Math.min(left, TICKS_PER_PERMIT);
+            myCpu.acquire();
+            try {
+                theEngine.step(ticks);
+            } finally {
+                myCpu.release();
+            }
+            left -= ticks;
+        }
+    }
+
+    /**
+     * Does a piece of CPU-bound work while holding a permit. This is meant to
+     * be called from a scenario, for work such as generating a city.
+     *
+     * @param <V> The type of the work's result.
+     * @param theWork The work, which should not block.
+     * @return the result of the work.
+     * @throws Exception if the work throws it, or InterruptedException if the
+     *             thread is interrupted while waiting for a permit.
+     */
+    public <V> V compute(final Callable<V> theWork) throws Exception {
+        myCpu.acquire();
+        try {
+            return theWork.call();
+        } finally {
+            myCpu.release();
+        }
+    }
+
+    /**
+     * Stops accepting scenarios and waits for those already started to end.
+     * If the waiting thread is interrupted, the scenarios are interrupted too.
+     */
+    @Override
+    public void close() {
+        myScenarios.shutdown();
+        try {
+            boolean done = false;
+            while (!done) {
+                done = myScenarios.awaitTermination(1, TimeUnit.DAYS);
+            }
+        } catch (final InterruptedException e) {
+            myScenarios.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// end class ScenarioExecutor
@@ -0,0 +1,27 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * A vehicle that can be given a random source of its own, which it then uses
+ * for every random choice it makes, instead of the generator shared by all
+ * vehicles. A SimulationEngine hands one to each vehicle when it is seeded.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+interface Seedable {
+
+    /**
+     * Sets the random source this vehicle draws its random directions from.
+     *
+     * @param theRandom The random source, or null for the shared one.
+     */
+    void setRandom(SplittableRandom theRandom);
+}
+
+// end interface Seedable
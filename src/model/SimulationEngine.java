@@ -0,0 +1,1212 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A headless simulation of the city. The engine owns the terrain grid, the
+ * vehicles and the state of the traffic lights, and advances all of them one
+ * tick at a time. It has no dependency on any user interface, so it can be
+ * driven by the GUI timer or stepped as fast as possible from a batch job.
+ *
+ * <p>The engine keeps an index of which vehicles stand on which square and
+ * updates it as it moves them, so vehicles should only be moved through the
+ * engine while it is running; reset() rebuilds the index.
+ *
+ * <p>In PARALLEL mode (see ExecutionMode) each tick has two phases. First,
+ * every vehicle that is alive chooses its direction, in parallel, against the
+ * grid and its own position at the start of the tick; a vehicle's choice never
+ * depends on the other vehicles, so this is the same choice it would make on
+ * its turn. Then the moves, the canPass checks (which may update a vehicle's
+ * waiting state) and the collisions are applied one vehicle at a time in list
+ * order. A vehicle killed earlier in the tick drops its choice and is poked
+ * instead, just as on its turn in SEQUENTIAL mode, so for vehicles that do not
+ * drive at random both modes give the same results.
+ *
+ * <p>The engine also records which squares changed how they look since a
+ * display last asked (see clearDirtyCells), so that it can redraw just those.
+ * It can also publish WorldSnapshots for readers on other threads, building
+ * one only after the reader has taken the last, and tell SimulationMetrics
+ * what happened on every tick.
+ *
+ * <p>A dead vehicle that is alone on its square does nothing on its turn but
+ * count down to its revival. The engine takes such a vehicle out of the set
+ * of vehicles that get turns and files it on a timer wheel under the tick it
+ * revives on, so dead vehicles cost nothing per tick. It gets turns again on
+ * that tick, or as soon as another vehicle moves onto its square, with its
+ * countdown where the skipped turns would have left it. In the same way, a
+ * living vehicle that does not drive at random, is alone on its square, and
+ * was held up by nothing but the light, facing the way it wants to go, would
+ * do exactly the same on every turn until the light changes. It is filed on
+ * a wait queue for the light phase and gets turns again when the light
+ * changes or another vehicle moves onto its square.
+ *
+ * <p>By default one light, changing every LIGHT_CHANGE_TICKS ticks, rules the
+ * whole city. Given TrafficSignals, the engine instead applies the light of
+ * the intersection a vehicle is moving onto, and files a vehicle held by the
+ * light on the timer wheel under the tick that intersection next changes.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class SimulationEngine {
+
+    /**
+     * The number of clock ticks between light changes.
+     */
+    public static final int LIGHT_CHANGE_TICKS = 19;
+
+    /**
+     * The number of ticks run between clock checks in runFor.
+     */
+    private static final int TICKS_PER_CLOCK_CHECK = 256;
+
+    /**
+     * The directions, cached to avoid cloning Direction.values() every tick.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * The most vehicles that one parallel task chooses directions for.
+     */
+    private static final int VEHICLES_PER_TASK = 1024;
+
+    /**
+     * The least number of changed squares recorded before giving up and
+     * treating every square as changed.
+     */
+    private static final int MIN_DIRTY_CELLS = 64;
+
+    /**
+     * The number of slots on the revival timer wheel, a power of two.
+     */
+    private static final int WHEEL_SIZE = 64;
+
+    /**
+     * The lights, cached to avoid cloning Light.values().
+     */
+    private static final Light[] LIGHTS = Light.values();
+
+    /**
+     * Marks the end of a list of parked vehicles.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The terrain grid for the simulation.
+     */
+    private final TerrainGrid myGrid;
+
+    /**
+     * The width of the grid, in squares.
+     */
+    private final int myWidth;
+
+    /**
+     * The height of the grid, in squares.
+     */
+    private final int myHeight;
+
+    /**
+     * A list of vehicles in the simulation.
+     */
+    private final List<Vehicle> myVehicles;
+
+    /**
+     * A read-only view of the vehicle list handed out to callers.
+     */
+    private final List<Vehicle> myReadOnlyVehicles;
+
+    /**
+     * Which vehicles stand on which square, for the collision checks.
+     */
+    private final OccupancyGrid myOccupancy;
+
+    /**
+     * The neighbors map, refilled for each vehicle in turn.
+     */
+    private final NeighborMap myNeighbors;
+
+    /**
+     * The direction each vehicle chose in the first phase of a PARALLEL tick.
+     */
+    private final Direction[] myIntents;
+
+    /**
+     * The vehicles that take turns; the rest are dead and waiting to revive.
+     */
+    private final BitSet myActive;
+
+    /**
+     * The first vehicle on each list of parked vehicles. The first WHEEL_SIZE
+     * lists are the slots of the timer wheel, which holds each dead parked
+     * vehicle under the tick it revives on, modulo WHEEL_SIZE; the rest are
+     * the wait queues of the light phases, indexed by the light's ordinal.
+     */
+    private final int[] myParkedLists;
+
+    /**
+     * The list each parked vehicle is on.
+     */
+    private final int[] myParkedList;
+
+    /**
+     * The vehicle after each parked vehicle on the same list.
+     */
+    private final int[] myParkedNext;
+
+    /**
+     * The vehicle before each parked vehicle on the same list.
+     */
+    private final int[] myParkedPrevious;
+
+    /**
+     * The tick each dead parked vehicle revives on.
+     */
+    private final long[] myRevivalTick;
+
+    /**
+     * The tick on which each inactive vehicle took its last turn.
+     */
+    private final long[] myParkedTick;
+
+    /**
+     * The revival countdown of each dead parked vehicle after its last turn.
+     */
+    private final int[] myParkedCountdown;
+
+    /**
+     * Whether the vehicle taking its turn was held up by nothing but the
+     * light, facing the way it wanted to go.
+     */
+    private boolean myHeldByLight;
+
+    /**
+     * The index of the vehicle taking its turn, or the number of vehicles
+     * between ticks.
+     */
+    private int myTurn;
+
+    /**
+     * How each tick is run.
+     */
+    private ExecutionMode myMode;
+
+    /**
+     * Whether the vehicles have been given random sources from mySeed.
+     */
+    private boolean mySeeded;
+
+    /**
+     * The seed the vehicles' random sources were derived from.
+     */
+    private long mySeed;
+
+    /**
+     * The squares that changed since the last clearDirtyCells, as y * width
+     * + x, possibly more than once each.
+     */
+    private final long[] myDirtyCells;
+
+    /**
+     * The number of entries in myDirtyCells.
+     */
+    private int myDirtyCount;
+
+    /**
+     * Whether more squares changed than myDirtyCells can hold.
+     */
+    private boolean myAllDirty;
+
+    /**
+     * Whether the lights changed since the last clearDirtyCells.
+     */
+    private boolean myLightsChanged;
+
+    /**
+     * The name of each vehicle, shared by all snapshots.
+     */
+    private final String[] myNames;
+
+    /**
+     * Whether snapshots are published.
+     */
+    private boolean myPublishing;
+
+    /**
+     * Whether the most recently published snapshot has been taken by a
+     * reader, so that the next tick should publish a new one.
+     */
+    private volatile boolean mySnapshotTaken;
+
+    /**
+     * The most recently published snapshot, or null if there is none.
+     */
+    private volatile WorldSnapshot mySnapshot;
+
+    /**
+     * The traffic lights in the simulation.
+     */
+    private Light myLights;
+
+    /**
+     * The controllers of the intersections, or null if myLights rules the
+     * whole city.
+     */
+    private TrafficSignals mySignals;
+
+    /**
+     * The first tick after the current one on which an intersection of
+     * mySignals changes color, or Long.MAX_VALUE if there are no signals.
+     */
+    private long myNextSignalChange;
+
+    /**
+     * The intersection the vehicle taking its turn was held up at, or
+     * TrafficSignals.NONE.
+     */
+    private int myHeldIntersection;
+
+    /**
+     * The current timestep of the simulation.
+     */
+    private long myTimestep;
+
+    /**
+     * The metrics told about every tick.
+     */
+    private SimulationMetrics myMetrics;
+
+    /**
+     * The number of living vehicles that moved so far this tick.
+     */
+    private int myMoved;
+
+    /**
+     * The number of living vehicles that could not move so far this tick.
+     */
+    private int myBlocked;
+
+    /**
+     * The number of living vehicles that turned around so far this tick.
+     */
+    private int myReversed;
+
+    /**
+     * The number of living vehicles parked until a light changes.
+     */
+    private int myWaiting;
+
+    /**
+     * The number of turns skipped this tick by living vehicles parked until a
+     * light changes.
+     */
+    private int myWaitingTurns;
+
+    /**
+     * Constructs a new simulation over a copy of the given grid and the given
+     * vehicles.
+     *
+     * @param theGrid The terrain grid, indexed [y][x].
+     * @param theVehicles The vehicles in the simulation, in update order.
+     */
+    public SimulationEngine(final Terrain[][] theGrid, final List<Vehicle> theVehicles) {
+        this(ByteTerrainGrid.copyOf(theGrid), theVehicles);
+    }
+
+    /**
+     * Constructs a new simulation over the given grid and vehicles. The grid
+     * never changes, so it may be shared with other simulations.
+     *
+     * @param theGrid The terrain grid.
+     * @param theVehicles The vehicles in the simulation, in update order.
+     */
+    public SimulationEngine(final TerrainGrid theGrid, final List<Vehicle> theVehicles) {
+        myGrid = theGrid;
+        myWidth = theGrid.getWidth();
+        myHeight = theGrid.getHeight();
+        myVehicles = new ArrayList<Vehicle>(theVehicles);
+        myReadOnlyVehicles = Collections.unmodifiableList(myVehicles);
+        myOccupancy = new OccupancyGrid(myWidth, myHeight, myVehicles.size());
+        myNeighbors = new NeighborMap();
+        myIntents = new Direction[myVehicles.size()];
+        myNames = new String[myVehicles.size()];
+        for (int index = 0; index < myNames.length; index++) {
+            myNames[index] = myVehicles.get(index).toString();
+        }
+        myDirtyCells = new long[Math.max(MIN_DIRTY_CELLS, 2 * myVehicles.size())];
+        myActive = new BitSet(myVehicles.size());
+        myParkedLists = new int[WHEEL_SIZE + LIGHTS.length];
+        myParkedList = new int[myVehicles.size()];
+        myParkedNext = new int[myVehicles.size()];
+        myParkedPrevious = new int[myVehicles.size()];
+        myRevivalTick = new long[myVehicles.size()];
+        myParkedTick = new long[myVehicles.size()];
+        myParkedCountdown = new int[myVehicles.size()];
+        activateAll();
+        myMode = ExecutionMode.SEQUENTIAL;
+        myMetrics = SimulationMetrics.NONE;
+        myLights = Light.GREEN;
+        myNextSignalChange = Long.MAX_VALUE;
+        myOccupancy.fill(myVehicles);
+    }
+
+    /**
+     * Advances the simulation by one tick, moving each vehicle once and
+     * checking collisions.
+     */
+    public void step() {
+        // read the clock only for metrics that record something
+        final boolean measuring = myMetrics != SimulationMetrics.NONE;
+        long start = 0;
+        if (measuring) {
+            start = System.nanoTime();
+        }
+        myMoved = 0;
+        myBlocked = 0;
+        myReversed = 0;
+
+        if (myMode == ExecutionMode.PARALLEL) {
+            stepParallel();
+        } else {
+            stepSequential();
+        }
+
+        myTimestep++;
+        if (myTimestep % LIGHT_CHANGE_TICKS == 0) {
+            wakeAll(WHEEL_SIZE + myLights.ordinal());
+            myLights = myLights.advance();
+            myLightsChanged = true;
+        }
+        if (myTimestep >= myNextSignalChange) {
+            myLightsChanged = true;
+            findNextSignalChange();
+        }
+        if (myPublishing && mySnapshotTaken) {
+            publishSnapshot();
+        }
+        if (measuring) {
+            myMetrics.tickCompleted(myTimestep - 1, System.nanoTime() - start, myMoved,
+                                    myBlocked + myWaitingTurns, myWaitingTurns, myReversed,
+                                    getActiveVehicleCount());
+        }
+    }
+
+    /**
+     * Moves and collides each vehicle in turn.
+     */
+    private void stepSequential() {
+        wake();
+        for (int index = myActive.nextSetBit(0); index >= 0;
+                        index = myActive.nextSetBit(index + 1)) {
+            myTurn = index;
+            final Vehicle v = myVehicles.get(index);
+            final Map<Direction, Terrain> neighbors = generateNeighbors(v, myNeighbors);
+
+            // move the vehicle
+            if (v.isAlive()) {
+                final Direction newDirection = v.chooseDirection(neighbors);
+                move(index, v, newDirection, neighbors.get(newDirection));
+            } else {
+                // become one move closer to revival
+                poke(v);
+            }
+
+            collide(index, v);
+            park(index, v);
+        }
+        myTurn = myVehicles.size();
+    }
+
+    /**
+     * Chooses every living vehicle's direction in parallel, then moves and
+     * collides each vehicle in turn.
+     */
+    private void stepParallel() {
+        ForkJoinPool.commonPool().invoke(new IntentTask(0, myVehicles.size()));
+
+        wake();
+        for (int index = myActive.nextSetBit(0); index >= 0;
+                        index = myActive.nextSetBit(index + 1)) {
+            myTurn = index;
+            final Vehicle v = myVehicles.get(index);
+
+            // a vehicle that is alive now was alive, and in the same place,
+            // when it chose its direction, unless it was parked then
+            if (v.isAlive()) {
+                Direction newDirection = myIntents[index];
+                if (newDirection == null) {
+                    newDirection = v.chooseDirection(generateNeighbors(v, myNeighbors));
+                }
+                move(index, v, newDirection, terrainAt(v.getX() + newDirection.dx(),
+                                                       v.getY() + newDirection.dy()));
+            } else {
+                // become one move closer to revival
+                poke(v);
+            }
+
+            collide(index, v);
+            park(index, v);
+        }
+        myTurn = myVehicles.size();
+    }
+
+    /**
+     * Turns a vehicle to its new direction and moves it one square that way,
+     * if it's okay to do so.
+     *
+     * @param theIndex The index of the vehicle.
+     * @param theMover The vehicle.
+     * @param theDirection The direction the vehicle chose.
+     * @param theTerrain The terrain one square away in that direction, or null.
+     */
+    private void move(final int theIndex, final Vehicle theMover,
+                      final Direction theDirection, final Terrain theTerrain) {
+        final boolean turned = theMover.getDirection() != theDirection;
+        if (turned) {
+            markDirty(theMover.getX(), theMover.getY());
+            if (theMover.getDirection().reverse() == theDirection) {
+                myReversed++;
+            }
+        }
+        theMover.setDirection(theDirection);
+
+        // the light that counts is the one on the square ahead
+        Light light = myLights;
+        myHeldIntersection = TrafficSignals.NONE;
+        if (mySignals != null) {
+            myHeldIntersection = mySignals.getIntersection(theMover.getX() + theDirection.dx(),
+                                                           theMover.getY() + theDirection.dy());
+            if (myHeldIntersection != TrafficSignals.NONE) {
+                light = mySignals.getLight(myHeldIntersection, myTimestep);
+            }
+        }
+
+        // a vehicle held by the light alone will not move until it changes
+        myHeldByLight = !turned && theMover instanceof Parkable
+                        && ((Parkable) theMover).isHeldByLight(theTerrain, light);
+
+        // move one square in current direction, if it's okay to do so
+        if (!myHeldByLight && theMover.canPass(theTerrain, light)) {
+            markDirty(theMover.getX(), theMover.getY());
+            theMover.setX(theMover.getX() + theDirection.dx());
+            theMover.setY(theMover.getY() + theDirection.dy());
+            myOccupancy.move(theIndex, theMover.getX(), theMover.getY());
+            markDirty(theMover.getX(), theMover.getY());
+            myMoved++;
+        } else {
+            myBlocked++;
+        }
+    }
+
+    /**
+     * Brings a dead vehicle one move closer to revival.
+     *
+     * @param theMover The vehicle.
+     */
+    private void poke(final Vehicle theMover) {
+        theMover.poke();
+        if (theMover.isAlive()) {
+            markDirty(theMover.getX(), theMover.getY());
+            myMetrics.revived(theMover);
+        }
+    }
+
+    /**
+     * Collides a vehicle with every other vehicle on its square.
+     *
+     * @param theIndex The index of the vehicle.
+     * @param theMover The vehicle.
+     */
+    private void collide(final int theIndex, final Vehicle theMover) {
+        // look for collisions, among the vehicles sharing this square only
+        for (int occupant = myOccupancy.first(theMover.getX(), theMover.getY());
+                        occupant != OccupancyGrid.NONE;
+                        occupant = myOccupancy.next(occupant)) {
+            if (occupant == theIndex) {
+                // don't collide with self
+                continue;
+            }
+
+            final Vehicle other = myVehicles.get(occupant);
+            if (theMover.getX() == other.getX() && theMover.getY() == other.getY()) {
+                if (!myActive.get(occupant)) {
+                    activate(occupant);
+                }
+
+                // tell both vehicles they have collided
+                final boolean moverAlive = theMover.isAlive();
+                final boolean otherAlive = other.isAlive();
+                if (moverAlive && otherAlive) {
+                    myMetrics.collided(theMover, other);
+                }
+                theMover.collide(other);
+                other.collide(theMover);
+                if (moverAlive != theMover.isAlive() || otherAlive != other.isAlive()) {
+                    markDirty(theMover.getX(), theMover.getY());
+                    countDeath(moverAlive, theMover);
+                    countDeath(otherAlive, other);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells the metrics about a vehicle that died in a collision.
+     *
+     * @param theWasAlive Whether the vehicle was alive before the collision.
+     * @param theVehicle The vehicle.
+     */
+    private void countDeath(final boolean theWasAlive, final Vehicle theVehicle) {
+        if (theWasAlive && !theVehicle.isAlive()) {
+            myMetrics.died(theVehicle);
+        }
+    }
+
+    /**
+     * Takes a vehicle out of the active set after its turn if its next turns
+     * would do nothing: a dead vehicle alone on its square is filed on the
+     * timer wheel under the tick it revives on, and a living one alone on its
+     * square and held by the light is filed on the wait queue of the light
+     * phase, or with TrafficSignals on the timer wheel under the tick its
+     * intersection changes. Only vehicles whose countdown can be read are
+     * parked while dead.
+     *
+     * @param theIndex The index of the vehicle.
+     * @param theMover The vehicle.
+     */
+    private void park(final int theIndex, final Vehicle theMover) {
+        final boolean alone =
+            myOccupancy.first(theMover.getX(), theMover.getY()) == theIndex
+                        && myOccupancy.next(theIndex) == OccupancyGrid.NONE;
+        if (alone && !theMover.isAlive() && theMover instanceof Revivable) {
+            final int countdown = ((Revivable) theMover).getRevivalCountdown();
+            myParkedTick[theIndex] = myTimestep;
+            myParkedCountdown[theIndex] = countdown;
+
+            // one poke per tick, starting next tick, revives it on the last
+            myRevivalTick[theIndex] = myTimestep + countdown;
+            link((int) (myRevivalTick[theIndex] & (WHEEL_SIZE - 1)), theIndex);
+        } else if (alone && theMover.isAlive() && myHeldByLight) {
+            myWaiting++;
+            if (myHeldIntersection == TrafficSignals.NONE) {
+                link(WHEEL_SIZE + myLights.ordinal(), theIndex);
+            } else {
+                myRevivalTick[theIndex] =
+                    mySignals.getNextChange(myHeldIntersection, myTimestep);
+                link((int) (myRevivalTick[theIndex] & (WHEEL_SIZE - 1)), theIndex);
+            }
+        }
+        myHeldByLight = false;
+    }
+
+    /**
+     * Takes a vehicle out of the active set and files it on a list of parked
+     * vehicles.
+     *
+     * @param theList The list.
+     * @param theIndex The index of the vehicle.
+     */
+    private void link(final int theList, final int theIndex) {
+        myActive.clear(theIndex);
+        myParkedList[theIndex] = theList;
+        myParkedPrevious[theIndex] = NONE;
+        myParkedNext[theIndex] = myParkedLists[theList];
+        if (myParkedLists[theList] != NONE) {
+            myParkedPrevious[myParkedLists[theList]] = theIndex;
+        }
+        myParkedLists[theList] = theIndex;
+    }
+
+    /**
+     * Puts a parked vehicle back in the active set. A dead one gets its
+     * countdown where its skipped turns would have left it: one poke for each
+     * tick since it was parked, counting this one only if its turn has
+     * already gone by.
+     *
+     * @param theIndex The index of the vehicle.
+     */
+    private void activate(final int theIndex) {
+        final int list = myParkedList[theIndex];
+        if (list < WHEEL_SIZE && !myVehicles.get(theIndex).isAlive()) {
+            long skipped = myTimestep - myParkedTick[theIndex];
+            if (theIndex > myTurn) {
+                skipped--;
+            }
+            ((Revivable) myVehicles.get(theIndex))
+                .setRevivalCountdown((int) (myParkedCountdown[theIndex] - skipped));
+        } else if (myVehicles.get(theIndex).isAlive()) {
+            // it was waiting for a light, and takes this tick's turn after all
+            // if that is still to come
+            myWaiting--;
+            if (theIndex > myTurn) {
+                myWaitingTurns--;
+            }
+        }
+
+        if (myParkedPrevious[theIndex] == NONE) {
+            myParkedLists[list] = myParkedNext[theIndex];
+        } else {
+            myParkedNext[myParkedPrevious[theIndex]] = myParkedNext[theIndex];
+        }
+        if (myParkedNext[theIndex] != NONE) {
+            myParkedPrevious[myParkedNext[theIndex]] = myParkedPrevious[theIndex];
+        }
+        myActive.set(theIndex);
+    }
+
+    /**
+     * Puts every parked vehicle that revives on this tick back in the active
+     * set, before any vehicle takes its turn, and counts the turns that the
+     * vehicles still waiting for a light will skip.
+     */
+    private void wake() {
+        myTurn = NONE;
+        int index = myParkedLists[(int) (myTimestep & (WHEEL_SIZE - 1))];
+        while (index != NONE) {
+            final int next = myParkedNext[index];
+            if (myRevivalTick[index] == myTimestep) {
+                activate(index);
+            }
+            index = next;
+        }
+        myWaitingTurns = myWaiting;
+    }
+
+    /**
+     * Puts every vehicle on a list of parked vehicles back in the active set.
+     *
+     * @param theList The list.
+     */
+    private void wakeAll(final int theList) {
+        while (myParkedLists[theList] != NONE) {
+            activate(myParkedLists[theList]);
+        }
+    }
+
+    /**
+     * Makes every vehicle active and empties the lists of parked vehicles.
+     */
+    private void activateAll() {
+        myActive.set(0, myVehicles.size());
+        Arrays.fill(myParkedLists, NONE);
+        myTurn = myVehicles.size();
+        myWaiting = 0;
+    }
+
+    /**
+     * Returns the number of vehicles that take turns. The rest are alone on
+     * their squares and either dead and waiting on the timer wheel to revive
+     * or waiting for the light to change.
+     *
+     * @return the number of active vehicles.
+     */
+    public int getActiveVehicleCount() {
+        return myActive.cardinality();
+    }
+
+    /**
+     * Advances the simulation by the given number of ticks.
+     *
+     * @param theTicks The number of ticks to run.
+     */
+    public void step(final long theTicks) {
+        for (long tick = 0; tick < theTicks; tick++) {
+            step();
+        }
+    }
+
+    /**
+     * Advances the simulation as fast as possible for (at least) the given
+     * amount of wall-clock time.
+     *
+     * @param theNanos The amount of time to run, in nanoseconds.
+     * @return the number of ticks that were run.
+     */
+    public long runFor(final long theNanos) {
+        final long start = System.nanoTime();
+        long ticks = 0;
+        while (System.nanoTime() - start < theNanos) {
+            step(TICKS_PER_CLOCK_CHECK);
+            ticks += TICKS_PER_CLOCK_CHECK;
+        }
+        return ticks;
+    }
+
+    /**
+     * Resets all the vehicles to their initial locations and resets the tick
+     * counter and the lights.
+     */
+    public void reset() {
+        myTimestep = 0;
+        myLights = Light.GREEN;
+
+        for (final Vehicle mov : myVehicles) {
+            mov.reset();
+        }
+        myOccupancy.fill(myVehicles);
+        activateAll();
+        findNextSignalChange();
+        myAllDirty = true;
+        myLightsChanged = true;
+        if (mySeeded) {
+            seedVehicles();
+        }
+        if (myPublishing) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Sets whether snapshots of the simulation are published. A snapshot is
+     * published on every reset, and at the end of the first tick after the
+     * last one published was taken by getSnapshot. So a reader that samples
+     * once per frame costs one snapshot per frame, however many ticks run in
+     * between, and may see one up to a frame old. Turning publishing on
+     * publishes one right away. Publishing copies the state of every vehicle,
+     * so batch runs leave it off.
+     *
+     * @param thePublishing true to publish snapshots.
+     */
+    public void setSnapshotPublishing(final boolean thePublishing) {
+        myPublishing = thePublishing;
+        if (thePublishing) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Returns the most recently published snapshot, and asks for a new one to
+     * be published at the end of the next tick. This may be called from any
+     * thread, without locking, while the simulation runs.
+     *
+     * @return the snapshot, or null if none has been published.
+     */
+    public WorldSnapshot getSnapshot() {
+        final WorldSnapshot result = mySnapshot;
+        mySnapshotTaken = true;
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of the simulation as it is now, publishes it, and
+     * returns it. Unlike getSnapshot, this reads the vehicles, so it must be
+     * called on the thread that steps the simulation, or while holding the
+     * engine's monitor.
+     *
+     * @return the snapshot.
+     */
+    public WorldSnapshot takeSnapshot() {
+        publishSnapshot();
+        mySnapshotTaken = true;
+        return mySnapshot;
+    }
+
+    /**
+     * Takes a snapshot of the simulation as it is now and publishes it.
+     */
+    private void publishSnapshot() {
+        mySnapshotTaken = false;
+        mySnapshot = new WorldSnapshot(getWidth(), getHeight(), myVehicles, myNames,
+                                       myLights, mySignals, myTimestep);
+    }
+
+    /**
+     * Gives every vehicle a random source of its own, split in list order from
+     * one master generator with the given seed, and uses them from now on for
+     * every random direction and revival. Two runs of the same city with the
+     * same seed and the same execution mode are then identical, and since each
+     * vehicle only draws from its own source, PARALLEL ticks need no shared
+     * generator. The vehicles are seeded again on every reset, so a run can be
+     * replayed from the start. Vehicles that are not Seedable keep drawing
+     * from the shared generator.
+     *
+     * @param theSeed The master seed.
+     */
+    public void setSeed(final long theSeed) {
+        mySeed = theSeed;
+        mySeeded = true;
+        seedVehicles();
+    }
+
+    /**
+     * Splits a random source for each vehicle from the master seed.
+     */
+    private void seedVehicles() {
+        final SplittableRandom master = new SplittableRandom(mySeed);
+        for (final Vehicle v : myVehicles) {
+            final SplittableRandom random = master.split();
+            if (v instanceof Seedable) {
+                ((Seedable) v).setRandom(random);
+            }
+        }
+    }
+
+    /**
+     * Records that the square at the given position changed how it looks.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     */
+    private void markDirty(final int theX, final int theY) {
+        if (!myAllDirty && isValidIndex(theX, theY)) {
+            if (myDirtyCount == myDirtyCells.length) {
+                myAllDirty = true;
+            } else {
+                myDirtyCells[myDirtyCount] = (long) theY * getWidth() + theX;
+                myDirtyCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of squares recorded as changed since the last call
+     * to clearDirtyCells. A square may be counted more than once.
+     *
+     * @return the number of changed squares.
+     */
+    public int getDirtyCellCount() {
+        return myDirtyCount;
+    }
+
+    /**
+     * Returns the x-coordinate of a square recorded as changed.
+     *
+     * @param theIndex The index of the record, below getDirtyCellCount().
+     * @return the x-coordinate of the square.
+     */
+    public int getDirtyCellX(final int theIndex) {
+        return (int) (myDirtyCells[theIndex] % getWidth());
+    }
+
+    /**
+     * Returns the y-coordinate of a square recorded as changed.
+     *
+     * @param theIndex The index of the record, below getDirtyCellCount().
+     * @return the y-coordinate of the square.
+     */
+    public int getDirtyCellY(final int theIndex) {
+        return (int) (myDirtyCells[theIndex] / getWidth());
+    }
+
+    /**
+     * Returns whether too many squares changed to record, or the simulation
+     * was reset, since the last call to clearDirtyCells. If so, every square
+     * should be treated as changed.
+     *
+     * @return true if every square should be treated as changed.
+     */
+    public boolean isAllDirty() {
+        return myAllDirty;
+    }
+
+    /**
+     * Returns whether the city-wide light, or the light of any intersection
+     * of the TrafficSignals, changed since the last call to clearDirtyCells.
+     * The squares that show the lights are not recorded one by one.
+     *
+     * @return true if the lights changed.
+     */
+    public boolean haveLightsChanged() {
+        return myLightsChanged;
+    }
+
+    /**
+     * Forgets the changed squares, once a display has redrawn them.
+     */
+    public void clearDirtyCells() {
+        myDirtyCount = 0;
+        myAllDirty = false;
+        myLightsChanged = false;
+    }
+
+    /**
+     * Fills the given read-only neighbors map for the specified vehicle. The
+     * map is reused, and is only valid until it is next filled.
+     *
+     * @param theMover The vehicle.
+     * @param theNeighbors The map to fill.
+     * @return The neighbors map.
+     */
+    private Map<Direction, Terrain> generateNeighbors(final Vehicle theMover,
+                                                      final NeighborMap theNeighbors) {
+        final int x = theMover.getX();
+        final int y = theMover.getY();
+        theNeighbors.reset();
+
+        for (final Direction dir : DIRECTIONS) {
+            if (isValidIndex(x + dir.dx(), y + dir.dy())) {
+                theNeighbors.set(dir, myGrid.get(x + dir.dx(), y + dir.dy()));
+            }
+        }
+        return theNeighbors;
+    }
+
+    /**
+     * Returns the terrain at the given x/y position, or null if the position
+     * is off the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the terrain at that position, or null.
+     */
+    private Terrain terrainAt(final int theX, final int theY) {
+        Terrain result = null;
+        if (isValidIndex(theX, theY)) {
+            result = myGrid.get(theX, theY);
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether the square at the given x/y position exists on the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return true if the position exists on the map, false otherwise.
+     */
+    public boolean isValidIndex(final int theX, final int theY) {
+        return 0 <= theY && theY < myHeight && 0 <= theX && theX < myWidth;
+    }
+
+    /**
+     * Returns the terrain at the given x/y position.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the terrain at that position.
+     */
+    public Terrain getTerrain(final int theX, final int theY) {
+        return myGrid.get(theX, theY);
+    }
+
+    /**
+     * Returns the width of the map, in squares.
+     *
+     * @return the number of columns in the grid.
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the map, in squares.
+     *
+     * @return the number of rows in the grid.
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the terrain grid, which never changes.
+     *
+     * @return the grid.
+     */
+    public TerrainGrid getGrid() {
+        return myGrid;
+    }
+
+    /**
+     * Returns a read-only view of the vehicles in the simulation.
+     *
+     * @return the vehicles, in update order.
+     */
+    public List<Vehicle> getVehicles() {
+        return myReadOnlyVehicles;
+    }
+
+    /**
+     * Returns how each tick is run.
+     *
+     * @return the execution mode.
+     */
+    public ExecutionMode getExecutionMode() {
+        return myMode;
+    }
+
+    /**
+     * Sets how each tick is run. SEQUENTIAL, the default, reproduces the
+     * original GUI loop exactly.
+     *
+     * @param theMode The execution mode.
+     */
+    public void setExecutionMode(final ExecutionMode theMode) {
+        if (theMode == null) {
+            throw new IllegalArgumentException("The execution mode must not be null");
+        }
+        myMode = theMode;
+    }
+
+    /**
+     * Returns the current color of the city-wide traffic light, which rules
+     * every intersection unless the engine has TrafficSignals.
+     *
+     * @return the current light.
+     */
+    public Light getLight() {
+        return myLights;
+    }
+
+    /**
+     * Returns the current color of the light on the given square.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the light of the square's intersection, or the city-wide light
+     *         if it has none or the engine has no TrafficSignals.
+     */
+    public Light getLightAt(final int theX, final int theY) {
+        Light result = myLights;
+        if (mySignals != null) {
+            final int intersection = mySignals.getIntersection(theX, theY);
+            if (intersection != TrafficSignals.NONE) {
+                result = mySignals.getLight(intersection, myTimestep);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first tick after the current one on which an intersection of
+     * the signals changes color, so that the squares that show it can be
+     * marked changed on that tick.
+     */
+    private void findNextSignalChange() {
+        myNextSignalChange = Long.MAX_VALUE;
+        if (mySignals != null) {
+            for (int i = 0; i < mySignals.getIntersectionCount(); i++) {
+                myNextSignalChange = Math.min(myNextSignalChange,
+                                              mySignals.getNextChange(i, myTimestep));
+            }
+        }
+    }
+
+    /**
+     * Returns the controllers of the intersections.
+     *
+     * @return the signals, or null if one light rules the whole city.
+     */
+    public TrafficSignals getSignals() {
+        return mySignals;
+    }
+
+    /**
+     * Gives every intersection its own controller, or goes back to one light
+     * for the whole city. Signals never change, so to retime them, give the
+     * engine a copy made with TrafficSignals.withTiming. Vehicles waiting for
+     * a light get a turn again.
+     *
+     * @param theSignals The signals, made for a grid of this size, or null.
+     */
+    public void setSignals(final TrafficSignals theSignals) {
+        if (theSignals != null && (theSignals.getWidth() != getWidth()
+                        || theSignals.getHeight() != getHeight())) {
+            throw new IllegalArgumentException("The signals are for a different grid");
+        }
+        mySignals = theSignals;
+        findNextSignalChange();
+        myLightsChanged = true;
+        myTurn = myVehicles.size();
+        for (int index = myActive.nextClearBit(0); index < myVehicles.size();
+                        index = myActive.nextClearBit(index + 1)) {
+            if (myVehicles.get(index).isAlive()) {
+                activate(index);
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics told about every tick.
+     *
+     * @return the metrics, SimulationMetrics.NONE by default.
+     */
+    public SimulationMetrics getMetrics() {
+        return myMetrics;
+    }
+
+    /**
+     * Sets the metrics to tell about every tick, collision, death and revival.
+     *
+     * @param theMetrics The metrics, or null for SimulationMetrics.NONE.
+     */
+    public void setMetrics(final SimulationMetrics theMetrics) {
+        if (theMetrics == null) {
+            myMetrics = SimulationMetrics.NONE;
+        } else {
+            myMetrics = theMetrics;
+        }
+    }
+
+    /**
+     * Returns the current timestep of the simulation.
+     *
+     * @return the number of ticks since the last reset.
+     */
+    public long getTimestep() {
+        return myTimestep;
+    }
+
+    /**
+     * Chooses the directions of the living vehicles in a range of indices,
+     * splitting the range between parallel tasks when it is large. Each task
+     * fills its own neighbors map and writes only its own slots of myIntents.
+     */
+    private final class IntentTask extends RecursiveAction {
+
+        /** A class version number. */
+        private static final long serialVersionUID = 1L;
+
+        /** The first index in the range. */
+        private final int myFrom;
+
+        /** One past the last index in the range. */
+        private final int myTo;
+
+        /**
+         * Constructs a task for the given range of indices.
+         *
+         * @param theFrom The first index in the range.
+         * @param theTo One past the last index in the range.
+         */
+        IntentTask(final int theFrom, final int theTo) {
+            super();
+            myFrom = theFrom;
+            myTo = theTo;
+        }
+
+        /**
+         * Chooses the directions, or splits the range in two.
+         */
+        @Override
+        protected void compute() {
+            if (myTo - myFrom <= VEHICLES_PER_TASK) {
+                final NeighborMap neighbors = new NeighborMap();
+                for (int index = myFrom; index < myTo; index++) {
+                    final Vehicle v = myVehicles.get(index);
+                    if (myActive.get(index) && v.isAlive()) {
+                        myIntents[index] = v.chooseDirection(generateNeighbors(v, neighbors));
+                    } else {
+                        myIntents[index] = null;
+                    }
+                }
+            } else {
+                final int middle = (myFrom + myTo) >>> 1;
+                invokeAll(new IntentTask(myFrom, middle), new IntentTask(middle, myTo));
+            }
+        }
+    }
+}
+
+// end class SimulationEngine
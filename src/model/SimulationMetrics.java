@@ -0,0 +1,76 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+/**
+ * Receives measurements from a SimulationEngine as it runs. Every method does
+ * nothing by default, so an implementation only overrides the measurements it
+ * wants. The engine calls these methods on the thread that steps it, from
+ * inside step(); an implementation read from another thread must publish what
+ * it records safely. NONE, the engine's default, records nothing and costs
+ * nothing: the engine does not even read the clock for it.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public interface SimulationMetrics {
+
+    /** Metrics that record nothing. */
+    SimulationMetrics NONE = new SimulationMetrics() {
+    };
+
+    /**
+     * Called at the end of every tick.
+     *
+     * @param theTimestep The number of the tick that ended, starting at 0.
+     * @param theNanos How long the tick took, in nanoseconds.
+     * @param theMoved The number of living vehicles that moved one square.
+     * @param theBlocked The number of living vehicles that could not move,
+     *            because of the terrain or the light, counting those parked
+     *            until the light changes, which skip their turns; so parking
+     *            does not change it.
+     * @param theWaiting The number of the blocked vehicles that were parked
+     *            until the light changes.
+     * @param theReversed The number of living vehicles that turned around.
+     * @param theActive The number of vehicles that take turns; the rest are
+     *            parked (see SimulationEngine.getActiveVehicleCount).
+     */
+    default void tickCompleted(final long theTimestep, final long theNanos,
+                               final int theMoved, final int theBlocked,
+                               final int theWaiting, final int theReversed,
+                               final int theActive) {
+        // record nothing
+    }
+
+    /**
+     * Called when two living vehicles collide, before either is told.
+     *
+     * @param theMover The vehicle that moved onto the square.
+     * @param theOther The vehicle it collided with.
+     */
+    default void collided(final Vehicle theMover, final Vehicle theOther) {
+        // record nothing
+    }
+
+    /**
+     * Called when a vehicle dies in a collision.
+     *
+     * @param theVehicle The vehicle.
+     */
+    default void died(final Vehicle theVehicle) {
+        // record nothing
+    }
+
+    /**
+     * Called when a dead vehicle comes back to life.
+     *
+     * @param theVehicle The vehicle.
+     */
+    default void revived(final Vehicle theVehicle) {
+        // record nothing
+    }
+}
+
+// end interface SimulationMetrics
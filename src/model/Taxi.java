@@ -39,6 +39,16 @@ public class Taxi extends AbstractVehicle {
     /**Constant that represents time vehicle takes to recover after collision.*/
     private static final int COLLISION_RECOVERY_TIME = 10;
 
+    /** Terrain this vehicle can travel on: streets, lights and cross walks. */
+    private static final int VALID_TERRAIN = Terrain.maskOf(Terrain.STREET, Terrain.LIGHT,
+                                                            Terrain.CROSSWALK);
+
+    /** The lights this vehicle always stops for, compiled into a table. */
+    private static final PassTable PASS_TABLE = PassTable.compile(Taxi::passes);
+
+    /** The cross-walk lights this vehicle waits at for a while, compiled into a table. */
+    private static final PassTable WAIT_TABLE = PassTable.compile(Taxi::waits);
+
     /** default value for how long a taxi will wait at a red cross-walk light.  */
     private static final int LIGHT_WAIT_DEFAULT = 3;
 
@@ -55,7 +65,8 @@ public class Taxi extends AbstractVehicle {
      */
     public Taxi(final int theX, final int theY, final Direction theDir) {
 
-        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, false, false);
+        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, VALID_TERRAIN, PASS_TABLE,
+              false, null);
         myLightCounter = LIGHT_WAIT_DEFAULT;
 
     }
@@ -68,6 +79,7 @@ public class Taxi extends AbstractVehicle {
      * 
      * The Taxi will stop for red lights, red & yellow cross-walks, and will
      * continue through red cross-walk lights after waiting 3 turns.
+     * Both rules are compiled into tables; the wait counter is the only state.
      * 
      * @param theTerrain The terrain.
      * @param theLight The light color.
@@ -78,15 +90,13 @@ public class Taxi extends AbstractVehicle {
     public boolean canPass(final Terrain theTerrain, final Light theLight) {
         boolean canPass = false;
 
-        //stops for: red Lights, & red or yellow cross-walk
-        if (myLightCounter > 0 && (theTerrain == Terrain.CROSSWALK && theLight == Light.RED)
-                        || (theTerrain == Terrain.LIGHT && theLight == Light.RED)) {
-
+        //stops for: red Lights, & red cross-walk until the wait runs out
+        if (!super.canPass(theTerrain, theLight)) {
             canPass = false;
-            if (theTerrain == Terrain.CROSSWALK) {
-                myLightCounter--;  
-            }
 
+        } else if (myLightCounter > 0 && WAIT_TABLE.get(theTerrain, theLight)) {
+            canPass = false;
+            myLightCounter--;
 
         } else {
             canPass = true;
@@ -94,4 +104,29 @@ public class Taxi extends AbstractVehicle {
         }
         return canPass;
     }
+
+    /**
+     * Rule for the lights this vehicle always stops for, compiled into
+     * PASS_TABLE when the class is loaded: the Taxi stops for red lights.
+     * 
+     * @param theTerrain The terrain.
+     * @param theLight The light color.
+     * @return false if the taxi must stop, true otherwise.
+     */
+    private static boolean passes(final Terrain theTerrain, final Light theLight) {
+        return !(theTerrain == Terrain.LIGHT && theLight == Light.RED);
+    }
+
+    /**
+     * Rule for the cross-walk lights this vehicle waits at, compiled into
+     * WAIT_TABLE when the class is loaded: the Taxi waits at red cross-walk
+     * lights for up to 3 turns.
+     * 
+     * @param theTerrain The terrain.
+     * @param theLight The light color.
+     * @return true if the taxi must wait here, false otherwise.
+     */
+    private static boolean waits(final Terrain theTerrain, final Light theLight) {
+        return theTerrain == Terrain.CROSSWALK && theLight == Light.RED;
+    }
 }
@@ -50,6 +50,11 @@ public enum Terrain {
      */
     private char myLetter;
 
+    /**
+     * The bit that stands for this Terrain in a terrain mask.
+     */
+    private final int myMask;
+
     // Constructor
 
     /**
@@ -59,6 +64,7 @@ public enum Terrain {
      */
     Terrain(final char theLetter) {
         myLetter = theLetter;
+        myMask = 1 << ordinal();
     }
 
     // Instance Methods
@@ -83,6 +89,39 @@ public enum Terrain {
         return result;
     }
 
+    /**
+     * Returns the letter that stands for this Terrain in a map file.
+     * 
+     * @return the letter.
+     */
+    public char letter() {
+        return myLetter;
+    }
+
+    /**
+     * Returns a bit mask with the bit of each of the given Terrains set.
+     * 
+     * @param theTerrains The terrains.
+     * @return the mask of those terrains.
+     */
+    static int maskOf(final Terrain... theTerrains) {
+        int result = 0;
+        for (final Terrain terrain : theTerrains) {
+            result |= terrain.myMask;
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether this Terrain is one of the terrains in the given mask.
+     * 
+     * @param theMask A mask built by maskOf.
+     * @return true if this Terrain's bit is set in the mask, false otherwise.
+     */
+    boolean isIn(final int theMask) {
+        return (theMask & myMask) != 0;
+    }
+
     /**
      * Returns a String representation of this Terrain, such as "WALL (X)".
      * 
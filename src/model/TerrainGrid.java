@@ -0,0 +1,41 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+/**
+ * A rectangular grid of terrain that does not change once it is built, so
+ * one grid can be shared by any number of simulations and threads.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public interface TerrainGrid {
+
+    /**
+     * Returns the width of the grid, in squares.
+     *
+     * @return the number of columns.
+     */
+    int getWidth();
+
+    /**
+     * Returns the height of the grid, in squares.
+     *
+     * @return the number of rows.
+     */
+    int getHeight();
+
+    /**
+     * Returns the terrain at the given x/y position, which must be on the
+     * grid.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the terrain at that position.
+     */
+    Terrain get(int theX, int theY);
+}
+
+// end interface TerrainGrid
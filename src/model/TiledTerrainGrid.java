@@ -0,0 +1,323 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A terrain grid kept in a binary map file (see BinaryCityMap) and read into
+ * memory a tile at a time. The grid is cut into square tiles of TILE_SIZE by
+ * TILE_SIZE squares; a tile is read from the file the first time one of its
+ * squares is asked for, and the least recently used tiles are dropped once
+ * more than a set number are resident. Since the simulation only ever looks
+ * at the squares around its vehicles, only the tiles that hold traffic are
+ * ever read, and a map far larger than memory can be run in a small heap.
+ *
+ * <p>Resident tiles are also filed in a small table indexed by a hash of the
+ * tile number, which get reads without locking, so looking up a square of a
+ * resident tile takes no lock and allocates nothing. Only a tile missing
+ * from the table goes through the synchronized LRU map. The file stays open
+ * until the grid is closed and is read with positional reads. Once the grid
+ * is closed, or a thread is interrupted while reading a tile (which closes
+ * the file, as for any FileChannel), squares of tiles that are not resident
+ * can no longer be read.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class TiledTerrainGrid implements TerrainGrid, Closeable {
+
+    /** The width and height of a tile, in squares. */
+    public static final int TILE_SIZE = 256;
+
+    /** The base 2 logarithm of TILE_SIZE. */
+    private static final int TILE_BITS = Integer.numberOfTrailingZeros(TILE_SIZE);
+
+    /** The terrains, cached to avoid cloning Terrain.values(). */
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    /** The base 2 logarithm of the number of slots in the lock-free table. */
+    private static final int SLOT_BITS = 8;
+
+    /** The multiplier of the Fibonacci hash of a tile number. */
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** The tile in every empty slot of the lock-free table. */
+    private static final Tile EMPTY = new Tile(-1, null);
+
+    /** The file the grid is kept in. */
+    private final Path myPath;
+
+    /** The position in the file of the grid's first square. */
+    private final long myOffset;
+
+    /** The width of the grid, in squares. */
+    private final int myWidth;
+
+    /** The height of the grid, in squares. */
+    private final int myHeight;
+
+    /** The number of tiles across the grid. */
+    private final int myTilesAcross;
+
+    /** The resident tiles, keyed by tile number, least recently used first. */
+    private final Map<Long, Tile> myTiles;
+
+    /**
+     * Resident tiles by hash of their tile number, read without locking and
+     * checked before the LRU map is consulted. A tile's fields are final, so
+     * a tile read here is seen fully constructed.
+     */
+    private final Tile[] mySlots;
+
+    /** The file, open until the grid is closed. */
+    private final FileChannel myChannel;
+
+    /** The number of tiles read from the file so far. */
+    private long myLoads;
+
+    /**
+     * Constructs a grid over the given part of a binary map file. Nothing is
+     * read until a square is asked for.
+     *
+     * @param thePath The file.
+     * @param theOffset The position in the file of the grid's first square.
+     * @param theWidth The width of the grid, in squares.
+     * @param theHeight The height of the grid, in squares.
+     * @param theResidentTiles The largest number of tiles to keep in memory.
+     * @throws IOException if the file cannot be opened.
+     */
+    TiledTerrainGrid(final Path thePath, final long theOffset, final int theWidth,
+                     final int theHeight, final int theResidentTiles) throws IOException {
+        if (theResidentTiles <= 0) {
+            throw new IllegalArgumentException("At least one tile must be resident");
+        }
+        myPath = thePath;
+        myOffset = theOffset;
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myTilesAcross = (theWidth + TILE_SIZE - 1) >>> TILE_BITS;
+        myTiles = new LinkedHashMap<Long, Tile>(theResidentTiles, 0.75f, true) {
+            /** A class version number. */
+            private static final long serialVersionUID = 1L;
+
+            /**
+             * Drops a tile when there are too many.
+             *
+             * @param theEldest The least recently used tile.
+             * @return false, since the tile to drop is removed here.
+             */
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Tile> theEldest) {
+                if (size() > theResidentTiles) {
+                    evict();
+                }
+                return false;
+            }
+        };
+        mySlots = new Tile[1 << SLOT_BITS];
+        Arrays.fill(mySlots, EMPTY);
+        myChannel = FileChannel.open(thePath, StandardOpenOption.READ);
+    }
+
+    /**
+     * Returns the width of the grid, in squares.
+     *
+     * @return the number of columns.
+     */
+    @Override
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the grid, in squares.
+     *
+     * @return the number of rows.
+     */
+    @Override
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the terrain at the given x/y position, which must be on the
+     * grid, reading its tile from the file if it is not resident.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the terrain at that position.
+     * @throws UncheckedIOException if the tile cannot be read.
+     */
+    @Override
+    public Terrain get(final int theX, final int theY) {
+        final long number = (long) (theY >>> TILE_BITS) * myTilesAcross + (theX >>> TILE_BITS);
+        Tile tile = mySlots[slot(number)];
+        if (tile.myNumber != number) {
+            tile = tile(number);
+        }
+        return TERRAINS[tile.myCells[(theY & (TILE_SIZE - 1)) << TILE_BITS
+                                     | theX & (TILE_SIZE - 1)]];
+    }
+
+    /**
+     * Closes the file. Squares of resident tiles can still be read, but a
+     * square of any other tile cannot.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        myChannel.close();
+    }
+
+    /**
+     * Returns the number of tiles currently in memory.
+     *
+     * @return the number of resident tiles.
+     */
+    public synchronized int getResidentTileCount() {
+        return myTiles.size();
+    }
+
+    /**
+     * Returns the number of times a tile has been read from the file.
+     *
+     * @return the number of tile reads.
+     */
+    public synchronized long getTileLoadCount() {
+        return myLoads;
+    }
+
+    /**
+     * Returns the slot of the lock-free table a tile is filed in.
+     *
+     * @param theNumber The tile number.
+     * @return the slot.
+     */
+    private static int slot(final long theNumber) {
+        return (int) (theNumber * HASH_MULTIPLIER >>> Long.SIZE - SLOT_BITS);
+    }
+
+    /**
+     * Returns a tile, reading it from the file if it is not resident, and
+     * files it in the lock-free table.
+     *
+     * @param theNumber The tile number, row * tiles across + column.
+     * @return the tile.
+     */
+    private synchronized Tile tile(final long theNumber) {
+        Tile result = myTiles.get(theNumber);
+        if (result == null) {
+            try {
+                result = load(theNumber);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Could not read tile " + theNumber
+                                               + " of " + myPath, e);
+            }
+            // file it in the table first, so that it too gets a second
+            // chance if putting it in the map drops a tile
+            mySlots[slot(theNumber)] = result;
+            myTiles.put(theNumber, result);
+            myLoads++;
+        } else {
+            mySlots[slot(theNumber)] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Drops the least recently used tile. Reads of tiles in the lock-free
+     * table do not refresh the LRU order, so a tile still in the table gets a
+     * second chance: it leaves the table and moves to the back of the order,
+     * and must be asked for again through the LRU map to stay.
+     */
+    private void evict() {
+        boolean evicted = false;
+        while (!evicted) {
+            final Map.Entry<Long, Tile> eldest = myTiles.entrySet().iterator().next();
+            final int slot = slot(eldest.getKey());
+            if (mySlots[slot] == eldest.getValue()) {
+                mySlots[slot] = EMPTY;
+                myTiles.get(eldest.getKey());
+            } else {
+                myTiles.remove(eldest.getKey());
+                evicted = true;
+            }
+        }
+    }
+
+    /**
+     * Reads a tile from the file, one row of squares at a time. Squares past
+     * the edge of the grid are left as zero and never asked for. Every square
+     * read is checked to hold a terrain, since the squares of a tile are only
+     * read when they are first asked for.
+     *
+     * @param theNumber The tile number, row * tiles across + column.
+     * @return the tile.
+     * @throws IOException if the file cannot be read or is closed, or a square
+     *             does not hold a terrain.
+     */
+    private Tile load(final long theNumber) throws IOException {
+        final int left = (int) (theNumber % myTilesAcross) << TILE_BITS;
+        final int top = (int) (theNumber / myTilesAcross) << TILE_BITS;
+        final int width = Math.min(TILE_SIZE, myWidth - left);
+        final int height = Math.min(TILE_SIZE, myHeight - top);
+        final byte[] cells = new byte[TILE_SIZE * TILE_SIZE];
+        for (int row = 0; row < height; row++) {
+            final ByteBuffer buffer = ByteBuffer.wrap(cells, row << TILE_BITS, width);
+            long position = myOffset + (long) (top + row) * myWidth + left;
+            while (buffer.hasRemaining()) {
+                final int read = myChannel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException(myPath + " ends inside the grid");
+                }
+                position += read;
+            }
+            for (int column = 0; column < width; column++) {
+                final int ordinal = cells[row << TILE_BITS | column] & 0xFF;
+                if (ordinal >= TERRAINS.length) {
+                    throw new IOException("Bad terrain " + ordinal + " at (" + (left + column)
+                                          + ", " + (top + row) + ")");
+                }
+            }
+        }
+        return new Tile(theNumber, cells);
+    }
+
+    /**
+     * One resident tile.
+     */
+    private static final class Tile {
+
+        /** The tile number, row * tiles across + column. */
+        private final long myNumber;
+
+        /** The terrain ordinals of the tile, indexed y * TILE_SIZE + x. */
+        private final byte[] myCells;
+
+        /**
+         * Constructs a tile.
+         *
+         * @param theNumber The tile number.
+         * @param theCells The terrain ordinals, indexed y * TILE_SIZE + x.
+         */
+        Tile(final long theNumber, final byte[] theCells) {
+            myNumber = theNumber;
+            myCells = theCells;
+        }
+    }
+}
+
+// end class TiledTerrainGrid
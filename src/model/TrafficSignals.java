@@ -0,0 +1,388 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The signal controllers of a city, one per intersection. An intersection is
+ * a group of LIGHT and CROSSWALK squares joined side to side, and each one
+ * runs its own cycle of GREEN, YELLOW and RED with its own phase lengths and
+ * offset, so that neighboring intersections can be timed as a green wave.
+ * The controllers are kept in compact arrays indexed by intersection id, and
+ * the signal squares in a sorted array mapping each to its intersection.
+ *
+ * <p>A new set of signals runs every intersection on the city-wide timing of
+ * a SimulationEngine: LIGHT_CHANGE_TICKS ticks of each color, starting green
+ * on tick 0, so it gives exactly the lights of an engine without signals.
+ *
+ * <p>Signals never change once made: withTiming and withTimings give a copy
+ * with new timing, which shares the squares and intersections with the
+ * original. So one set of signals can be shared by any number of engines, on
+ * any number of threads, and the wake-up ticks an engine computed from them
+ * stay right for as long as it uses them.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class TrafficSignals {
+
+    /** Marks a square that belongs to no intersection. */
+    public static final int NONE = -1;
+
+    /** The width of the grid, in squares. */
+    private final int myWidth;
+
+    /** The height of the grid, in squares. */
+    private final int myHeight;
+
+    /** The signal squares, as y * width + x, in increasing order. */
+    private final long[] myCells;
+
+    /** The intersection of each signal square. */
+    private final int[] myIntersections;
+
+    /** The number of ticks of green in each intersection's cycle. */
+    private final int[] myGreen;
+
+    /** The number of ticks of yellow in each intersection's cycle. */
+    private final int[] myYellow;
+
+    /** The number of ticks of red in each intersection's cycle. */
+    private final int[] myRed;
+
+    /** The number of ticks each intersection's cycle is ahead of tick 0. */
+    private final int[] myOffset;
+
+    /**
+     * Constructs the signals of a grid, finding its intersections and giving
+     * each the city-wide timing. The whole grid is read once.
+     *
+     * @param theGrid The terrain grid.
+     */
+    public TrafficSignals(final TerrainGrid theGrid) {
+        myWidth = theGrid.getWidth();
+        myHeight = theGrid.getHeight();
+
+        // the signal squares, found in row order, so already sorted
+        long[] cells = new long[Math.max(1, myWidth)];
+        int count = 0;
+        for (int y = 0; y < myHeight; y++) {
+            for (int x = 0; x < myWidth; x++) {
+                final Terrain t = theGrid.get(x, y);
+                if (t == Terrain.LIGHT || t == Terrain.CROSSWALK) {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, 2 * count);
+                    }
+                    cells[count] = (long) y * myWidth + x;
+                    count++;
+                }
+            }
+        }
+        myCells = Arrays.copyOf(cells, count);
+
+        // join each square to its signal neighbors to the left and above
+        final int[] parent = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+            if (myCells[i] % myWidth > 0 && i > 0 && myCells[i - 1] == myCells[i] - 1) {
+                union(parent, i - 1, i);
+            }
+            final int above = Arrays.binarySearch(myCells, 0, i, myCells[i] - myWidth);
+            if (above >= 0) {
+                union(parent, above, i);
+            }
+        }
+
+        // number the intersections in order of their first square
+        myIntersections = new int[count];
+        int intersections = 0;
+        for (int i = 0; i < count; i++) {
+            final int root = find(parent, i);
+            if (root == i) {
+                myIntersections[i] = intersections;
+                intersections++;
+            } else {
+                myIntersections[i] = myIntersections[root];
+            }
+        }
+
+        myGreen = new int[intersections];
+        myYellow = new int[intersections];
+        myRed = new int[intersections];
+        myOffset = new int[intersections];
+        Arrays.fill(myGreen, SimulationEngine.LIGHT_CHANGE_TICKS);
+        Arrays.fill(myYellow, SimulationEngine.LIGHT_CHANGE_TICKS);
+        Arrays.fill(myRed, SimulationEngine.LIGHT_CHANGE_TICKS);
+    }
+
+    /**
+     * Constructs a copy of some signals with new timing.
+     *
+     * @param theOriginal The signals to copy the squares and intersections of.
+     * @param theGreen The green phase lengths, owned by the copy.
+     * @param theYellow The yellow phase lengths, owned by the copy.
+     * @param theRed The red phase lengths, owned by the copy.
+     * @param theOffset The offsets, owned by the copy.
+     */
+    private TrafficSignals(final TrafficSignals theOriginal, final int[] theGreen,
+                           final int[] theYellow, final int[] theRed,
+                           final int[] theOffset) {
+        myWidth = theOriginal.myWidth;
+        myHeight = theOriginal.myHeight;
+        myCells = theOriginal.myCells;
+        myIntersections = theOriginal.myIntersections;
+        myGreen = theGreen;
+        myYellow = theYellow;
+        myRed = theRed;
+        myOffset = theOffset;
+    }
+
+    /**
+     * Returns the root of a square's group, flattening the path to it.
+     *
+     * @param theParent The parent of each square.
+     * @param theIndex The index of the square.
+     * @return the index of the root square of its group.
+     */
+    private static int find(final int[] theParent, final int theIndex) {
+        int root = theIndex;
+        while (theParent[root] != root) {
+            root = theParent[root];
+        }
+        int index = theIndex;
+        while (theParent[index] != root) {
+            final int next = theParent[index];
+            theParent[index] = root;
+            index = next;
+        }
+        return root;
+    }
+
+    /**
+     * Joins the groups of two squares, keeping the lower root, so that every
+     * group's root is its first square.
+     *
+     * @param theParent The parent of each square.
+     * @param theFirst The index of one square.
+     * @param theSecond The index of the other square.
+     */
+    private static void union(final int[] theParent, final int theFirst, final int theSecond) {
+        final int first = find(theParent, theFirst);
+        final int second = find(theParent, theSecond);
+        theParent[Math.max(first, second)] = Math.min(first, second);
+    }
+
+    /**
+     * Returns the width of the grid the signals were made for.
+     *
+     * @return the number of columns.
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the grid the signals were made for.
+     *
+     * @return the number of rows.
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the number of intersections.
+     *
+     * @return the number of intersections.
+     */
+    public int getIntersectionCount() {
+        return myGreen.length;
+    }
+
+    /**
+     * Returns the intersection a square belongs to.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the intersection's id, or NONE if the square is not a LIGHT or
+     *         CROSSWALK on the grid.
+     */
+    public int getIntersection(final int theX, final int theY) {
+        int result = NONE;
+        if (0 <= theX && theX < myWidth && 0 <= theY && theY < myHeight) {
+            final int index = Arrays.binarySearch(myCells, (long) theY * myWidth + theX);
+            if (index >= 0) {
+                result = myIntersections[index];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of these signals in which one intersection has new
+     * timing.
+     *
+     * @param theIntersection The intersection's id.
+     * @param theGreen The number of ticks of green, at least 1.
+     * @param theYellow The number of ticks of yellow, at least 1.
+     * @param theRed The number of ticks of red, at least 1.
+     * @param theOffset The number of ticks the cycle is ahead of tick 0.
+     * @return the new signals.
+     */
+    public TrafficSignals withTiming(final int theIntersection, final int theGreen,
+                                     final int theYellow, final int theRed,
+                                     final int theOffset) {
+        final TrafficSignals result = new TrafficSignals(this, myGreen.clone(),
+                                                         myYellow.clone(), myRed.clone(),
+                                                         myOffset.clone());
+        result.time(theIntersection, theGreen, theYellow, theRed, theOffset);
+        return result;
+    }
+
+    /**
+     * Returns a copy of these signals in which every intersection has new
+     * timing, given in arrays indexed by intersection id.
+     *
+     * @param theGreen The number of ticks of green, each at least 1.
+     * @param theYellow The number of ticks of yellow, each at least 1.
+     * @param theRed The number of ticks of red, each at least 1.
+     * @param theOffset The number of ticks each cycle is ahead of tick 0.
+     * @return the new signals.
+     */
+    public TrafficSignals withTimings(final int[] theGreen, final int[] theYellow,
+                                      final int[] theRed, final int[] theOffset) {
+        final int count = getIntersectionCount();
+        if (theGreen.length != count || theYellow.length != count || theRed.length != count
+                        || theOffset.length != count) {
+            throw new IllegalArgumentException("There must be a timing for each of the "
+                                               + count + " intersections");
+        }
+        final TrafficSignals result = new TrafficSignals(this, new int[count],
+                                                         new int[count], new int[count],
+                                                         new int[count]);
+        for (int i = 0; i < count; i++) {
+            result.time(i, theGreen[i], theYellow[i], theRed[i], theOffset[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the timing of an intersection of signals still being made.
+     *
+     * @param theIntersection The intersection's id.
+     * @param theGreen The number of ticks of green, at least 1.
+     * @param theYellow The number of ticks of yellow, at least 1.
+     * @param theRed The number of ticks of red, at least 1.
+     * @param theOffset The number of ticks the cycle is ahead of tick 0.
+     */
+    private void time(final int theIntersection, final int theGreen, final int theYellow,
+                      final int theRed, final int theOffset) {
+        if (theGreen <= 0 || theYellow <= 0 || theRed <= 0) {
+            throw new IllegalArgumentException("Every phase must last at least one tick");
+        }
+        myGreen[theIntersection] = theGreen;
+        myYellow[theIntersection] = theYellow;
+        myRed[theIntersection] = theRed;
+        myOffset[theIntersection] = Math.floorMod(theOffset, theGreen + theYellow + theRed);
+    }
+
+    /**
+     * Returns the number of ticks of green in an intersection's cycle.
+     *
+     * @param theIntersection The intersection's id.
+     * @return the length of the green phase.
+     */
+    public int getGreen(final int theIntersection) {
+        return myGreen[theIntersection];
+    }
+
+    /**
+     * Returns the number of ticks of yellow in an intersection's cycle.
+     *
+     * @param theIntersection The intersection's id.
+     * @return the length of the yellow phase.
+     */
+    public int getYellow(final int theIntersection) {
+        return myYellow[theIntersection];
+    }
+
+    /**
+     * Returns the number of ticks of red in an intersection's cycle.
+     *
+     * @param theIntersection The intersection's id.
+     * @return the length of the red phase.
+     */
+    public int getRed(final int theIntersection) {
+        return myRed[theIntersection];
+    }
+
+    /**
+     * Returns the number of ticks an intersection's cycle is ahead of tick 0.
+     *
+     * @param theIntersection The intersection's id.
+     * @return the offset, between 0 and the cycle length.
+     */
+    public int getOffset(final int theIntersection) {
+        return myOffset[theIntersection];
+    }
+
+    /**
+     * Returns the color an intersection shows on the given tick.
+     *
+     * @param theIntersection The intersection's id.
+     * @param theTick The tick.
+     * @return the light.
+     */
+    public Light getLight(final int theIntersection, final long theTick) {
+        final long phase = phase(theIntersection, theTick);
+        final Light result;
+        if (phase < myGreen[theIntersection]) {
+            result = Light.GREEN;
+        } else if (phase < myGreen[theIntersection] + myYellow[theIntersection]) {
+            result = Light.YELLOW;
+        } else {
+            result = Light.RED;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first tick after the given one on which an intersection
+     * shows a different color.
+     *
+     * @param theIntersection The intersection's id.
+     * @param theTick The tick.
+     * @return the tick of the next change.
+     */
+    public long getNextChange(final int theIntersection, final long theTick) {
+        final long phase = phase(theIntersection, theTick);
+        final long end;
+        if (phase < myGreen[theIntersection]) {
+            end = myGreen[theIntersection];
+        } else if (phase < myGreen[theIntersection] + myYellow[theIntersection]) {
+            end = myGreen[theIntersection] + myYellow[theIntersection];
+        } else {
+            end = myGreen[theIntersection] + myYellow[theIntersection]
+                  + myRed[theIntersection];
+        }
+        return theTick + end - phase;
+    }
+
+    /**
+     * Returns how far into its cycle an intersection is on the given tick.
+     *
+     * @param theIntersection The intersection's id.
+     * @param theTick The tick.
+     * @return the number of ticks since the cycle last started green.
+     */
+    private long phase(final int theIntersection, final long theTick) {
+        return Math.floorMod(theTick + myOffset[theIntersection],
+                             (long) myGreen[theIntersection] + myYellow[theIntersection]
+                             + myRed[theIntersection]);
+    }
+}
+
+// end class TrafficSignals
@@ -25,6 +25,13 @@ public class Truck extends AbstractVehicle {
     /**Constant that represents time vehicle takes to recover after collision.*/
     private static final int COLLISION_RECOVERY_TIME = 0;
 
+    /** Terrain this vehicle can travel on: streets, lights and cross walks. */
+    private static final int VALID_TERRAIN = Terrain.maskOf(Terrain.STREET, Terrain.LIGHT,
+                                                            Terrain.CROSSWALK);
+
+    /** This vehicle's canPass rule, compiled into a table. */
+    private static final PassTable PASS_TABLE = PassTable.compile(Truck::passes);
+
 
     /**
      * Constructor method that calls to the super constructor to create a Truck object.
@@ -34,15 +41,16 @@ public class Truck extends AbstractVehicle {
      */
     public Truck(final int theX, final int theY, final Direction theDir) {
 
-        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, true, false);
+        super(theX, theY, theDir, COLLISION_RECOVERY_TIME, VALID_TERRAIN, PASS_TABLE,
+              true, null);
 
     }
  
 
     /**
-     * Method that determines if this vehicle is able to move forward in the
+     * Rule that determines if this vehicle is able to move forward in the
      * direction its facing. This is dependent on its behavior and if it is
-     * at a light or not. 
+     * at a light or not. It is compiled into PASS_TABLE when the class is loaded.
      * 
      * The truck will drive through any light except a red crosswalk light.
      * 
@@ -51,12 +59,11 @@ public class Truck extends AbstractVehicle {
      * @return whether or not this object may move onto the given type of
      *         terrain when the street lights are the given color.
      */
-    @Override
-    public boolean canPass(final Terrain theTerrain, final Light theLight) {
+    private static boolean passes(final Terrain theTerrain, final Light theLight) {
         boolean canPass = true;
         //will drive through anything except red lights at crosswalks
         if ((theTerrain == Terrain.CROSSWALK && theLight == Light.RED)
-                        || !verifyDirection(theTerrain)) {
+                        || theTerrain == null || !theTerrain.isIn(VALID_TERRAIN)) {
             canPass = false;        
         }
         return canPass;
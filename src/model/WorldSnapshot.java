@@ -0,0 +1,249 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable picture of a simulation at the end of one tick: where every
+ * vehicle is, which way it faces, whether it is alive, the light colors and
+ * the timestep. The state is copied into primitive arrays when the snapshot
+ * is taken, so a snapshot can be read from any thread without locking while
+ * the simulation goes on.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class WorldSnapshot {
+
+    /** The directions, cached to avoid cloning Direction.values(). */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** The lights, cached to avoid cloning Light.values(). */
+    private static final Light[] LIGHTS = Light.values();
+
+    /** The intersection lights of a snapshot without TrafficSignals. */
+    private static final byte[] NO_SIGNAL_LIGHTS = new byte[0];
+
+    /** The width of the map, in squares. */
+    private final int myWidth;
+
+    /** The height of the map, in squares. */
+    private final int myHeight;
+
+    /** The x coordinate of each vehicle. */
+    private final int[] myX;
+
+    /** The y coordinate of each vehicle. */
+    private final int[] myY;
+
+    /** The ordinal of the direction each vehicle is facing. */
+    private final byte[] myDirection;
+
+    /** Whether each vehicle is alive. */
+    private final boolean[] myAlive;
+
+    /** The name of each vehicle; shared between snapshots, never changed. */
+    private final String[] myNames;
+
+    /** The image file name of each vehicle. */
+    private final String[] myImageFileNames;
+
+    /** The city-wide light color. */
+    private final Light myLight;
+
+    /** The controllers of the intersections, or null if myLight rules. */
+    private final TrafficSignals mySignals;
+
+    /** The ordinal of the light each intersection shows. */
+    private final byte[] mySignalLights;
+
+    /** The timestep. */
+    private final long myTimestep;
+
+    /**
+     * Takes a snapshot of the given vehicles.
+     *
+     * @param theWidth The width of the map, in squares.
+     * @param theHeight The height of the map, in squares.
+     * @param theVehicles The vehicles, in update order.
+     * @param theNames The name of each vehicle, which the snapshot keeps.
+     * @param theLight The city-wide light color.
+     * @param theSignals The controllers of the intersections, or null.
+     * @param theTimestep The timestep.
+     */
+    WorldSnapshot(final int theWidth, final int theHeight,
+                  final List<Vehicle> theVehicles, final String[] theNames,
+                  final Light theLight, final TrafficSignals theSignals,
+                  final long theTimestep) {
+        final int size = theVehicles.size();
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myX = new int[size];
+        myY = new int[size];
+        myDirection = new byte[size];
+        myAlive = new boolean[size];
+        myImageFileNames = new String[size];
+        for (int index = 0; index < size; index++) {
+            final Vehicle v = theVehicles.get(index);
+            myX[index] = v.getX();
+            myY[index] = v.getY();
+            myDirection[index] = (byte) v.getDirection().ordinal();
+            myAlive[index] = v.isAlive();
+            myImageFileNames[index] = v.getImageFileName();
+        }
+        myNames = theNames;
+        myLight = theLight;
+        mySignals = theSignals;
+        if (theSignals == null) {
+            mySignalLights = NO_SIGNAL_LIGHTS;
+        } else {
+            mySignalLights = new byte[theSignals.getIntersectionCount()];
+            for (int i = 0; i < mySignalLights.length; i++) {
+                mySignalLights[i] = (byte) theSignals.getLight(i, theTimestep).ordinal();
+            }
+        }
+        myTimestep = theTimestep;
+    }
+
+    /**
+     * Returns the width of the map, in squares.
+     *
+     * @return the number of columns in the grid.
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the map, in squares.
+     *
+     * @return the number of rows in the grid.
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the number of vehicles.
+     *
+     * @return the number of vehicles.
+     */
+    public int size() {
+        return myX.length;
+    }
+
+    /**
+     * Returns a vehicle's x-coordinate.
+     *
+     * @param theIndex The index of the vehicle, in update order.
+     * @return the x-coordinate.
+     */
+    public int getX(final int theIndex) {
+        return myX[theIndex];
+    }
+
+    /**
+     * Returns a vehicle's y-coordinate.
+     *
+     * @param theIndex The index of the vehicle, in update order.
+     * @return the y-coordinate.
+     */
+    public int getY(final int theIndex) {
+        return myY[theIndex];
+    }
+
+    /**
+     * Returns the direction a vehicle is facing.
+     *
+     * @param theIndex The index of the vehicle, in update order.
+     * @return the direction.
+     */
+    public Direction getDirection(final int theIndex) {
+        return DIRECTIONS[myDirection[theIndex]];
+    }
+
+    /**
+     * Returns whether a vehicle is alive.
+     *
+     * @param theIndex The index of the vehicle, in update order.
+     * @return true if the vehicle is alive.
+     */
+    public boolean isAlive(final int theIndex) {
+        return myAlive[theIndex];
+    }
+
+    /**
+     * Returns a vehicle's name, as given by its toString.
+     *
+     * @param theIndex The index of the vehicle, in update order.
+     * @return the name, such as "car".
+     */
+    public String getName(final int theIndex) {
+        return myNames[theIndex];
+    }
+
+    /**
+     * Returns the file name of a vehicle's image.
+     *
+     * @param theIndex The index of the vehicle, in update order.
+     * @return the file name.
+     */
+    public String getImageFileName(final int theIndex) {
+        return myImageFileNames[theIndex];
+    }
+
+    /**
+     * Returns the color of the city-wide traffic light, which rules every
+     * intersection unless the simulation had TrafficSignals.
+     *
+     * @return the light.
+     */
+    public Light getLight() {
+        return myLight;
+    }
+
+    /**
+     * Returns the color of the light on the given square.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the light of the square's intersection, or the city-wide light
+     *         if it has none or the simulation had no TrafficSignals.
+     */
+    public Light getLightAt(final int theX, final int theY) {
+        Light result = myLight;
+        if (mySignals != null) {
+            final int intersection = mySignals.getIntersection(theX, theY);
+            if (intersection != TrafficSignals.NONE) {
+                result = LIGHTS[mySignalLights[intersection]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether another snapshot shows the same light on every square.
+     *
+     * @param theOther The other snapshot, of the same city.
+     * @return true if no light differs between the two.
+     */
+    public boolean hasSameLights(final WorldSnapshot theOther) {
+        return myLight == theOther.myLight && mySignals == theOther.mySignals
+               && Arrays.equals(mySignalLights, theOther.mySignalLights);
+    }
+
+    /**
+     * Returns the timestep.
+     *
+     * @return the number of ticks since the last reset.
+     */
+    public long getTimestep() {
+        return myTimestep;
+    }
+}
+
+// end class WorldSnapshot
@@ -0,0 +1,82 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import model.CityMap;
+import model.CityReader;
+
+import org.junit.Test;
+
+import view.BatchRunner;
+
+/**
+ * Tests of the BatchRunner.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class BatchRunnerTest {
+
+    /** The number of runs in the batch. */
+    private static final int RUNS = 24;
+
+    /** The number of ticks per run. */
+    private static final long TICKS = 500;
+
+    /** The seed of the first run. */
+    private static final long SEED = 305L;
+
+    /** The number of threads of the parallel batch. */
+    private static final int THREADS = 4;
+
+    /**
+     * Test that a batch gives the same runs on any number of threads.
+     *
+     * @throws IOException if the map cannot be read.
+     * @throws InterruptedException if the test is interrupted.
+     */
+    @Test
+    public void testThreadsGiveSameRuns() throws IOException, InterruptedException {
+        final CityMap city = CityReader.load("city_map2.txt", null);
+        final StringWriter sequential = new StringWriter();
+        final StringWriter parallel = new StringWriter();
+        final BatchRunner.Summary summary =
+            BatchRunner.run(city, RUNS, TICKS, SEED, 1, sequential);
+        final BatchRunner.Summary parallelSummary =
+            BatchRunner.run(city, RUNS, TICKS, SEED, THREADS, parallel);
+
+        // the runs finish in any order, so compare them sorted by run number
+        final String[] expected = sortedRuns(sequential.toString());
+        assertEquals("Wrong number of lines!", RUNS + 1, expected.length);
+        assertEquals("Wrong header!", BatchRunner.HEADER, expected[0]);
+        assertArrayEquals("Threads changed the runs!", expected,
+                          sortedRuns(parallel.toString()));
+        assertEquals("Wrong number of runs!", RUNS, parallelSummary.getRuns());
+        assertEquals("Summaries differ!", summary.getMeanCollisions(),
+                     parallelSummary.getMeanCollisions(), 1e-9);
+        assertTrue("Collisions should happen!", summary.getMeanCollisions() > 0);
+    }
+
+    /**
+     * Splits CSV output into lines and sorts the runs by run number, keeping
+     * the header first.
+     *
+     * @param theOutput The CSV output.
+     * @return the lines.
+     */
+    private static String[] sortedRuns(final String theOutput) {
+        final String[] result = theOutput.split("\n");
+        Arrays.sort(result, 1, result.length, (theFirst, theSecond) -> Integer.compare(
+            Integer.parseInt(theFirst.substring(0, theFirst.indexOf(','))),
+            Integer.parseInt(theSecond.substring(0, theSecond.indexOf(',')))));
+        return result;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import model.BinaryCityMap;
+import model.CityMap;
+import model.CityReader;
+import model.SimulationEngine;
+import model.Terrain;
+import model.TerrainGrid;
+import model.TiledTerrainGrid;
+import model.Vehicle;
+
+import org.junit.Test;
+
+/**
+ * Tests that city maps survive a round trip through the binary format.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class BinaryCityMapTest {
+
+    /** The map files shipped with the program. */
+    private static final String[] MAP_FILES = {"city_map1.txt", "city_map2.txt"};
+
+    /**
+     * The width and height of the map used to test tiling, large enough that
+     * the engine keeps only the occupied squares in its occupancy index.
+     */
+    private static final int HUGE_SIZE = 2100;
+
+    /** The number of tiles the tiled grid may keep in memory. */
+    private static final int RESIDENT_TILES = 2;
+
+    /** The number of ticks to compare the tiled map with the original. */
+    private static final int TICKS_TO_COMPARE = 500;
+
+    /** The seed for the random drivers. */
+    private static final long SEED = 305L;
+
+    /** The size of a binary map's header: magic, version, rows, columns, vehicles. */
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+    /** The square corrupted in the bad terrain test. */
+    private static final int BAD_SQUARE = 7;
+
+    /**
+     * Test that both shipped maps open from binary exactly as they were read
+     * from text, both directly and through CityReader.
+     *
+     * @throws IOException if a map cannot be read or written.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (final String file : MAP_FILES) {
+            final CityMap text = CityReader.load(file, null);
+            final Path binary = Files.createTempFile("city", ".map");
+            try {
+                BinaryCityMap.write(text, binary);
+                assertTrue(file + " not recognized", BinaryCityMap.isBinaryMap(binary));
+                assertSameCity(file, text, BinaryCityMap.open(binary));
+                assertSameCity(file, text, CityReader.load(binary.toString(), null));
+            } finally {
+                Files.delete(binary);
+            }
+        }
+    }
+
+    /**
+     * Test that a file which is not a binary map is rejected.
+     *
+     * @throws IOException if the temporary file cannot be written.
+     */
+    @Test
+    public void testNotBinary() throws IOException {
+        final Path file = Files.createTempFile("city", ".map");
+        try {
+            Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+            assertFalse("Not a binary map!", BinaryCityMap.isBinaryMap(file));
+            BinaryCityMap.open(file);
+            fail("A file that is not a binary map should be rejected!");
+        } catch (final IOException e) {
+            assertTrue("Wrong message: " + e.getMessage(), e.getMessage().contains("binary"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test that a square that does not hold a terrain is reported when it is
+     * read, from a mapped grid or a tiled one.
+     *
+     * @throws IOException if the temporary file cannot be written.
+     */
+    @Test
+    public void testBadTerrain() throws IOException {
+        final Path binary = Files.createTempFile("city", ".map");
+        try {
+            BinaryCityMap.write(CityReader.load(MAP_FILES[0], null), binary);
+            final byte[] bytes = Files.readAllBytes(binary);
+            bytes[HEADER_SIZE + BAD_SQUARE] = (byte) Terrain.values().length;
+            Files.write(binary, bytes);
+            final TerrainGrid mapped = BinaryCityMap.open(binary).getGrid();
+            assertEquals("Good squares should still be read!",
+                         Terrain.values()[bytes[HEADER_SIZE]], mapped.get(0, 0));
+            assertBadSquare(mapped);
+            try (CityMap tiled = BinaryCityMap.open(binary, RESIDENT_TILES)) {
+                assertBadSquare(tiled.getGrid());
+            }
+        } finally {
+            Files.delete(binary);
+        }
+    }
+
+    /**
+     * Test that a city in the corner of a huge map of walls, read through a
+     * tiled grid, runs exactly as the city does on its own, while only the
+     * one tile holding the city is ever read.
+     *
+     * @throws IOException if a map cannot be read or written.
+     */
+    @Test
+    public void testTiledHugeMap() throws IOException {
+        final CityMap city = CityReader.load(MAP_FILES[1], null);
+        final TerrainGrid small = city.getGrid();
+        final Path binary = Files.createTempFile("huge", ".map");
+        try {
+            final DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(binary)));
+            try {
+                out.writeInt(BinaryCityMap.MAGIC);
+                out.writeInt(BinaryCityMap.VERSION);
+                out.writeInt(HUGE_SIZE);
+                out.writeInt(HUGE_SIZE);
+                out.writeInt(city.getVehicleCount());
+                for (int y = 0; y < HUGE_SIZE; y++) {
+                    for (int x = 0; x < HUGE_SIZE; x++) {
+                        Terrain t = Terrain.WALL;
+                        if (x < small.getWidth() && y < small.getHeight()) {
+                            t = small.get(x, y);
+                        }
+                        out.writeByte(t.ordinal());
+                    }
+                }
+                for (int i = 0; i < city.getVehicleCount(); i++) {
+                    out.writeByte(city.getVehicleType(i));
+                    out.writeInt(city.getVehicleX(i));
+                    out.writeInt(city.getVehicleY(i));
+                    out.writeByte(city.getVehicleDirection(i).letter());
+                }
+            } finally {
+                out.close();
+            }
+
+            final CityMap huge = BinaryCityMap.open(binary, RESIDENT_TILES);
+            final TiledTerrainGrid grid = (TiledTerrainGrid) huge.getGrid();
+            try {
+                final SimulationEngine expected = city.newEngine();
+                final SimulationEngine actual = huge.newEngine();
+                expected.setSeed(SEED);
+                actual.setSeed(SEED);
+                for (int tick = 0; tick < TICKS_TO_COMPARE; tick++) {
+                    expected.step();
+                    actual.step();
+                    assertSameVehicles("tick " + tick, expected.getVehicles(),
+                                       actual.getVehicles());
+                }
+                assertEquals("Only the city's tile should be read", 1, grid.getTileLoadCount());
+                assertTrue("Too many tiles resident",
+                           grid.getResidentTileCount() <= RESIDENT_TILES);
+            } finally {
+                huge.close();
+            }
+            assertEquals("A resident tile should still be read after closing!",
+                         city.getGrid().get(0, 0), grid.get(0, 0));
+            try {
+                grid.get(HUGE_SIZE - 1, HUGE_SIZE - 1);
+                fail("A closed grid should not read tiles!");
+            } catch (final UncheckedIOException e) {
+                assertEquals("Wrong tile reads!", 1, grid.getTileLoadCount());
+            }
+        } finally {
+            Files.delete(binary);
+        }
+    }
+
+    /**
+     * Asserts that reading the corrupted square of a grid reports it.
+     *
+     * @param theGrid The grid.
+     */
+    private static void assertBadSquare(final TerrainGrid theGrid) {
+        try {
+            theGrid.get(BAD_SQUARE, 0);
+            fail("A bad terrain should be rejected!");
+        } catch (final UncheckedIOException e) {
+            assertTrue("Wrong message: " + e.getCause().getMessage(),
+                       e.getCause().getMessage().contains("(" + BAD_SQUARE + ", 0)"));
+        }
+    }
+
+    /**
+     * Asserts that two lists of vehicles are in the same places and states.
+     *
+     * @param theWhen When the lists are compared, for messages.
+     * @param theExpected The expected vehicles.
+     * @param theActual The actual vehicles.
+     */
+    private static void assertSameVehicles(final String theWhen,
+                                           final List<Vehicle> theExpected,
+                                           final List<Vehicle> theActual) {
+        for (int i = 0; i < theExpected.size(); i++) {
+            final Vehicle e = theExpected.get(i);
+            final Vehicle a = theActual.get(i);
+            final String where = "vehicle " + i + " at " + theWhen;
+            assertEquals("Wrong x of " + where, e.getX(), a.getX());
+            assertEquals("Wrong y of " + where, e.getY(), a.getY());
+            assertEquals("Wrong direction of " + where, e.getDirection(), a.getDirection());
+            assertEquals("Wrong state of " + where, e.isAlive(), a.isAlive());
+        }
+    }
+
+    /**
+     * Asserts that two cities have the same grid and vehicles.
+     *
+     * @param theFile The name of the original map file, for messages.
+     * @param theExpected The expected city.
+     * @param theActual The actual city.
+     */
+    private static void assertSameCity(final String theFile, final CityMap theExpected,
+                                       final CityMap theActual) {
+        final TerrainGrid expected = theExpected.getGrid();
+        final TerrainGrid actual = theActual.getGrid();
+        assertEquals("Wrong height for " + theFile, expected.getHeight(), actual.getHeight());
+        assertEquals("Wrong width for " + theFile, expected.getWidth(), actual.getWidth());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("Wrong terrain at " + x + ", " + y + " in " + theFile,
+                             expected.get(x, y), actual.get(x, y));
+            }
+        }
+        assertEquals("Wrong vehicle count for " + theFile, theExpected.getVehicleCount(),
+                     theActual.getVehicleCount());
+        for (int i = 0; i < theExpected.getVehicleCount(); i++) {
+            final String where = "vehicle " + i + " in " + theFile;
+            assertEquals("Wrong type of " + where, theExpected.getVehicleType(i),
+                         theActual.getVehicleType(i));
+            assertEquals("Wrong x of " + where, theExpected.getVehicleX(i),
+                         theActual.getVehicleX(i));
+            assertEquals("Wrong y of " + where, theExpected.getVehicleY(i),
+                         theActual.getVehicleY(i));
+            assertEquals("Wrong direction of " + where, theExpected.getVehicleDirection(i),
+                         theActual.getVehicleDirection(i));
+        }
+    }
+}
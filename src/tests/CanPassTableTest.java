@@ -0,0 +1,195 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import model.Atv;
+import model.Bicycle;
+import model.Car;
+import model.Direction;
+import model.Human;
+import model.Light;
+import model.Taxi;
+import model.Terrain;
+import model.Truck;
+import model.Vehicle;
+
+import org.junit.Test;
+
+/**
+ * Tests that the table-driven canPass of every vehicle type gives exactly the
+ * answers of the original chains of comparisons, which are kept here as the
+ * reference. Null terrain (off the map) and a null light are included.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class CanPassTableTest {
+
+    /** The length of the random call sequence used on the Taxi. */
+    private static final int TAXI_SEQUENCE_LENGTH = 10000;
+
+    /** The seed of the random call sequence, so failures can be replayed. */
+    private static final long SEED = 305L;
+
+    /** Every terrain, plus null. */
+    private static final Terrain[] TERRAINS = {
+        Terrain.GRASS, Terrain.STREET, Terrain.LIGHT, Terrain.WALL, Terrain.TRAIL,
+        Terrain.CROSSWALK, null,
+    };
+
+    /** Every light, plus null. */
+    private static final Light[] LIGHTS = {Light.GREEN, Light.YELLOW, Light.RED, null};
+
+    /** Test method for {@link Atv#canPass(Terrain, Light)}. */
+    @Test
+    public void testAtv() {
+        final Vehicle atv = new Atv(0, 0, Direction.NORTH);
+        for (final Terrain t : TERRAINS) {
+            for (final Light l : LIGHTS) {
+                assertEquals("ATV differs for " + t + ", " + l, true, atv.canPass(t, l));
+            }
+        }
+    }
+
+    /** Test method for {@link Bicycle#canPass(Terrain, Light)}. */
+    @Test
+    public void testBicycle() {
+        final Vehicle bicycle = new Bicycle(0, 0, Direction.NORTH);
+        for (final Terrain t : TERRAINS) {
+            for (final Light l : LIGHTS) {
+                final boolean expected = !((t == Terrain.LIGHT || t == Terrain.CROSSWALK)
+                                && l != Light.GREEN);
+                assertEquals("Bicycle differs for " + t + ", " + l, expected,
+                             bicycle.canPass(t, l));
+            }
+        }
+    }
+
+    /** Test method for {@link Car#canPass(Terrain, Light)}. */
+    @Test
+    public void testCar() {
+        final Vehicle car = new Car(0, 0, Direction.NORTH);
+        for (final Terrain t : TERRAINS) {
+            for (final Light l : LIGHTS) {
+                final boolean expected = !((t == Terrain.LIGHT && l == Light.RED)
+                                || ((t == Terrain.CROSSWALK) && (l == Light.YELLOW
+                                || l == Light.RED)));
+                assertEquals("Car differs for " + t + ", " + l, expected, car.canPass(t, l));
+            }
+        }
+    }
+
+    /** Test method for {@link Human#canPass(Terrain, Light)}. */
+    @Test
+    public void testHuman() {
+        final Vehicle human = new Human(0, 0, Direction.NORTH);
+        for (final Terrain t : TERRAINS) {
+            for (final Light l : LIGHTS) {
+                final boolean valid = t == Terrain.GRASS || t == Terrain.CROSSWALK;
+                final boolean expected = !((t == Terrain.CROSSWALK && l == Light.GREEN)
+                                || !valid);
+                assertEquals("Human differs for " + t + ", " + l, expected,
+                             human.canPass(t, l));
+            }
+        }
+    }
+
+    /** Test method for {@link Truck#canPass(Terrain, Light)}. */
+    @Test
+    public void testTruck() {
+        final Vehicle truck = new Truck(0, 0, Direction.NORTH);
+        for (final Terrain t : TERRAINS) {
+            for (final Light l : LIGHTS) {
+                final boolean valid = t == Terrain.STREET || t == Terrain.LIGHT
+                                || t == Terrain.CROSSWALK;
+                final boolean expected = !((t == Terrain.CROSSWALK && l == Light.RED)
+                                || !valid);
+                assertEquals("Truck differs for " + t + ", " + l, expected,
+                             truck.canPass(t, l));
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link Taxi#canPass(Terrain, Light)}. The Taxi remembers
+     * how long it has waited at a cross-walk, so every pair of calls is tried
+     * on a fresh taxi and then one long random sequence of calls is replayed
+     * against the original implementation.
+     */
+    @Test
+    public void testTaxi() {
+        for (final Terrain t1 : TERRAINS) {
+            for (final Light l1 : LIGHTS) {
+                for (final Terrain t2 : TERRAINS) {
+                    for (final Light l2 : LIGHTS) {
+                        final Vehicle taxi = new Taxi(0, 0, Direction.NORTH);
+                        final ReferenceTaxi reference = new ReferenceTaxi();
+                        assertEquals("Taxi differs for " + t1 + ", " + l1,
+                                     reference.canPass(t1, l1), taxi.canPass(t1, l1));
+                        assertEquals("Taxi differs for " + t2 + ", " + l2 + " after "
+                                     + t1 + ", " + l1,
+                                     reference.canPass(t2, l2), taxi.canPass(t2, l2));
+                    }
+                }
+            }
+        }
+
+        final Random random = new Random(SEED);
+        final Vehicle taxi = new Taxi(0, 0, Direction.NORTH);
+        final ReferenceTaxi reference = new ReferenceTaxi();
+        for (int call = 0; call < TAXI_SEQUENCE_LENGTH; call++) {
+            // favor red cross-walks so that the wait counter runs out often
+            final Terrain t;
+            final Light l;
+            if (random.nextBoolean()) {
+                t = Terrain.CROSSWALK;
+                l = Light.RED;
+            } else {
+                t = TERRAINS[random.nextInt(TERRAINS.length)];
+                l = LIGHTS[random.nextInt(LIGHTS.length)];
+            }
+            assertEquals("Taxi differs on call " + call + " for " + t + ", " + l,
+                         reference.canPass(t, l), taxi.canPass(t, l));
+        }
+    }
+
+    /**
+     * The original Taxi passability rule and its wait counter.
+     */
+    private static final class ReferenceTaxi {
+
+        /** How long a taxi waits at a red cross-walk light. */
+        private static final int LIGHT_WAIT_DEFAULT = 3;
+
+        /** How long the taxi has left to wait. */
+        private int myLightCounter = LIGHT_WAIT_DEFAULT;
+
+        /**
+         * The original Taxi canPass.
+         *
+         * @param theTerrain The terrain.
+         * @param theLight The light color.
+         * @return whether the taxi may pass.
+         */
+        boolean canPass(final Terrain theTerrain, final Light theLight) {
+            boolean canPass = false;
+            if (myLightCounter > 0 && (theTerrain == Terrain.CROSSWALK && theLight == Light.RED)
+                            || (theTerrain == Terrain.LIGHT && theLight == Light.RED)) {
+                canPass = false;
+                if (theTerrain == Terrain.CROSSWALK) {
+                    myLightCounter--;
+                }
+            } else {
+                canPass = true;
+                myLightCounter = LIGHT_WAIT_DEFAULT;
+            }
+            return canPass;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import model.CityGenerator;
+import model.CityMap;
+import model.CityReader;
+import model.SimulationEngine;
+import model.Terrain;
+import model.TerrainGrid;
+
+import org.junit.Test;
+
+/**
+ * Tests of the synthetic CityGenerator.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class CityGeneratorTest {
+
+    /** The seed of the generated cities. */
+    private static final long SEED = 305L;
+
+    /** The width of the small generated city. */
+    private static final int WIDTH = 61;
+
+    /** The height of the small generated city. */
+    private static final int HEIGHT = 45;
+
+    /** The number of vehicles in the small generated city. */
+    private static final int VEHICLES = 300;
+
+    /** The width and height of the crowded generated city. */
+    private static final int CROWDED_SIZE = 20;
+
+    /** The number of vehicles in the crowded generated city. */
+    private static final int CROWDED_VEHICLES = 150;
+
+    /** The width and height of the large generated city, a million squares. */
+    private static final int LARGE_SIZE = 1000;
+
+    /** The number of vehicles in the large generated city. */
+    private static final int LARGE_VEHICLES = 100000;
+
+    /** The number of ticks to run the large city. */
+    private static final int LARGE_TICKS = 10;
+
+    /** Test that a seed always gives the same city, and another seed does not. */
+    @Test
+    public void testSeeded() {
+        final String first = describe(CityGenerator.generate(WIDTH, HEIGHT, VEHICLES, SEED));
+        assertEquals("Same seed, different city!", first,
+                     describe(CityGenerator.generate(WIDTH, HEIGHT, VEHICLES, SEED)));
+        assertFalse("Different seed, same city!", first.equals(
+            describe(CityGenerator.generate(WIDTH, HEIGHT, VEHICLES, SEED + 1))));
+    }
+
+    /** Test that the city is walled in and every vehicle can move where it starts. */
+    @Test
+    public void testValid() {
+        final CityMap city = CityGenerator.generate(WIDTH, HEIGHT, VEHICLES, SEED);
+        final TerrainGrid grid = city.getGrid();
+        for (int x = 0; x < WIDTH; x++) {
+            assertEquals("No wall at top!", Terrain.WALL, grid.get(x, 0));
+            assertEquals("No wall at bottom!", Terrain.WALL, grid.get(x, HEIGHT - 1));
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            assertEquals("No wall at left!", Terrain.WALL, grid.get(0, y));
+            assertEquals("No wall at right!", Terrain.WALL, grid.get(WIDTH - 1, y));
+        }
+
+        final Set<Terrain> seen = EnumSet.noneOf(Terrain.class);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                seen.add(grid.get(x, y));
+            }
+        }
+        assertEquals("Every terrain should appear!", EnumSet.allOf(Terrain.class), seen);
+
+        final Set<String> squares = new HashSet<>();
+        for (int i = 0; i < city.getVehicleCount(); i++) {
+            assertTrue("Vehicle " + i + " shares its start square!",
+                       squares.add(city.getVehicleX(i) + "," + city.getVehicleY(i)));
+            final Terrain t = grid.get(city.getVehicleX(i), city.getVehicleY(i));
+            final boolean valid;
+            switch (city.getVehicleType(i)) {
+                case 'A':
+                    valid = t != Terrain.WALL;
+                    break;
+                case 'B':
+                    valid = t != Terrain.WALL && t != Terrain.GRASS;
+                    break;
+                case 'H':
+                    valid = t == Terrain.GRASS || t == Terrain.CROSSWALK;
+                    break;
+                default:
+                    valid = t == Terrain.STREET || t == Terrain.LIGHT
+                                    || t == Terrain.CROSSWALK;
+            }
+            assertTrue("Vehicle " + i + " starts on " + t, valid);
+        }
+    }
+
+    /**
+     * Test that a crowded city still gives every vehicle a square of its own,
+     * and that a city with more vehicles than squares is refused.
+     */
+    @Test
+    public void testCrowded() {
+        final CityMap city = CityGenerator.generate(CROWDED_SIZE, CROWDED_SIZE,
+                                                    CROWDED_VEHICLES, SEED);
+        final Set<String> squares = new HashSet<>();
+        for (int i = 0; i < city.getVehicleCount(); i++) {
+            assertTrue("Vehicle " + i + " shares its start square!",
+                       squares.add(city.getVehicleX(i) + "," + city.getVehicleY(i)));
+        }
+
+        try {
+            CityGenerator.generate(CROWDED_SIZE, CROWDED_SIZE,
+                                   CROWDED_SIZE * CROWDED_SIZE, SEED);
+            fail("More vehicles than squares should be refused!");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that a generated city reads back from the text format unchanged.
+     *
+     * @throws IOException if the file cannot be written or read.
+     */
+    @Test
+    public void testTextRoundTrip() throws IOException {
+        final CityMap city = CityGenerator.generate(WIDTH, HEIGHT, VEHICLES, SEED);
+        final Path file = Files.createTempFile("city", ".txt");
+        try {
+            CityGenerator.writeText(city, file);
+            assertEquals("Text format lost something!", describe(city),
+                         describe(CityReader.load(file.toString(), null)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Test that a city of a million squares and 100000 vehicles runs. */
+    @Test
+    public void testLarge() {
+        final CityMap city = CityGenerator.generate(LARGE_SIZE, LARGE_SIZE, LARGE_VEHICLES,
+                                                    SEED);
+        final SimulationEngine engine = city.newEngine();
+        engine.setSeed(SEED);
+        engine.step(LARGE_TICKS);
+        assertEquals("Wrong number of vehicles!", LARGE_VEHICLES,
+                     engine.getVehicles().size());
+        assertEquals("Wrong timestep!", LARGE_TICKS, engine.getTimestep());
+    }
+
+    /**
+     * Describes a city: its squares and its vehicles.
+     *
+     * @param theCity The city.
+     * @return the description.
+     */
+    private static String describe(final CityMap theCity) {
+        final StringBuilder result = new StringBuilder();
+        final TerrainGrid grid = theCity.getGrid();
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                result.append(grid.get(x, y).letter());
+            }
+            result.append('\n');
+        }
+        for (int i = 0; i < theCity.getVehicleCount(); i++) {
+            result.append(theCity.getVehicleType(i)).append(' ').append(theCity.getVehicleX(i))
+                .append(' ').append(theCity.getVehicleY(i)).append(' ')
+                .append(theCity.getVehicleDirection(i)).append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+import model.CityMap;
+import model.CityReader;
+import model.Direction;
+import model.Terrain;
+import model.TerrainGrid;
+
+import org.junit.Test;
+
+/**
+ * Tests that the streaming CityReader reads maps exactly as the original
+ * Scanner-based reader did.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class CityReaderTest {
+
+    /** The map files shipped with the program. */
+    private static final String[] MAP_FILES = {"city_map1.txt", "city_map2.txt"};
+
+    /**
+     * Test that both shipped maps read the same as with the original reader.
+     *
+     * @throws IOException if a map cannot be read.
+     */
+    @Test
+    public void testMatchesScannerReader() throws IOException {
+        for (final String file : MAP_FILES) {
+            final CityMap map = CityReader.load(file, null);
+            final Scanner input = new Scanner(new File(file));
+            try {
+                final int rows = input.nextInt();
+                final int columns = input.nextInt();
+                input.nextLine();
+                final TerrainGrid grid = map.getGrid();
+                assertEquals("Wrong height for " + file, rows, grid.getHeight());
+                assertEquals("Wrong width for " + file, columns, grid.getWidth());
+                for (int y = 0; y < rows; y++) {
+                    final String line = input.nextLine();
+                    for (int x = 0; x < columns; x++) {
+                        assertEquals("Wrong terrain at " + x + ", " + y + " in " + file,
+                                     Terrain.valueOf(line.charAt(x)), grid.get(x, y));
+                    }
+                }
+
+                final int vehicles = input.nextInt();
+                input.nextLine();
+                assertEquals("Wrong vehicle count for " + file, vehicles,
+                             map.getVehicleCount());
+                for (int i = 0; i < vehicles; i++) {
+                    final String where = "vehicle " + i + " in " + file;
+                    assertEquals("Wrong type of " + where, input.next().charAt(0),
+                                 map.getVehicleType(i));
+                    assertEquals("Wrong x of " + where, input.nextInt(), map.getVehicleX(i));
+                    assertEquals("Wrong y of " + where, input.nextInt(), map.getVehicleY(i));
+                    assertEquals("Wrong direction of " + where,
+                                 Direction.valueOf(input.next().charAt(0)),
+                                 map.getVehicleDirection(i));
+                    input.nextLine();
+                }
+            } finally {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Test that progress is reported up to the size of the file.
+     *
+     * @throws IOException if the map cannot be read.
+     */
+    @Test
+    public void testProgress() throws IOException {
+        final long[] last = {0, 0};
+        CityReader.load(MAP_FILES[0], new CityReader.ProgressListener() {
+            /**
+             * Records the progress.
+             *
+             * @param theBytesRead The number of bytes read so far.
+             * @param theTotalBytes The size of the map in bytes.
+             */
+            @Override
+            public void progress(final long theBytesRead, final long theTotalBytes) {
+                assertTrue("Progress went backwards!", theBytesRead >= last[0]);
+                last[0] = theBytesRead;
+                last[1] = theTotalBytes;
+            }
+        });
+        final long size = new File(MAP_FILES[0]).length();
+        assertEquals("Not all bytes reported!", size, last[0]);
+        assertEquals("Wrong total!", size, last[1]);
+    }
+
+    /**
+     * Test that a map with a short row is rejected.
+     *
+     * @throws IOException if the temporary file cannot be written.
+     */
+    @Test
+    public void testShortRow() throws IOException {
+        final File file = File.createTempFile("short", ".txt");
+        file.deleteOnExit();
+        write(file, "2 3\nX|X\nX|\n0\n");
+        try {
+            CityReader.load(file.getPath(), null);
+            fail("A short row should be rejected!");
+        } catch (final IOException e) {
+            assertTrue("Wrong message: " + e.getMessage(), e.getMessage().contains("Row 1"));
+        }
+    }
+
+    /**
+     * Writes text to a file.
+     *
+     * @param theFile The file.
+     * @param theText The text.
+     * @throws FileNotFoundException if the file cannot be written.
+     */
+    private static void write(final File theFile, final String theText)
+        throws FileNotFoundException {
+        final PrintStream out = new PrintStream(theFile);
+        out.print(theText);
+        out.close();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.CityMap;
+import model.CityReader;
+import model.ScenarioExecutor;
+import model.SimulationEngine;
+import model.Vehicle;
+
+import org.junit.Test;
+
+/**
+ * Tests of the ScenarioExecutor.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class ScenarioExecutorTest {
+
+    /** The number of CPU permits. */
+    private static final int PERMITS = 2;
+
+    /** The number of scenarios. */
+    private static final int SCENARIOS = 32;
+
+    /** The number of milliseconds each scenario blocks and computes for. */
+    private static final long MILLIS = 5;
+
+    /** The number of ticks of each simulation, more than one permit's worth. */
+    private static final long TICKS = ScenarioExecutor.TICKS_PER_PERMIT + 100;
+
+    /** The first Java version with virtual threads. */
+    private static final int VIRTUAL_THREAD_VERSION = 21;
+
+    /**
+     * Test that no more CPU-bound phases run at once than there are permits,
+     * while blocked scenarios do not hold permits.
+     *
+     * @throws InterruptedException if the test is interrupted.
+     * @throws ExecutionException if a scenario fails.
+     */
+    @Test
+    public void testBoundedCompute() throws InterruptedException, ExecutionException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger most = new AtomicInteger();
+        final List<Future<Integer>> results = new ArrayList<>();
+        try (ScenarioExecutor executor = new ScenarioExecutor(PERMITS)) {
+            assertEquals("Wrong permits!", PERMITS, executor.getCpuPermits());
+            assertEquals("Virtual threads wrongly detected!",
+                         Runtime.version().feature() >= VIRTUAL_THREAD_VERSION,
+                         executor.isVirtual());
+            for (int i = 0; i < SCENARIOS; i++) {
+                final int scenario = i;
+                results.add(executor.submit(() -> {
+                    // stands in for blocking output
+                    Thread.sleep(MILLIS);
+                    return executor.compute(() -> {
+                        most.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(MILLIS);
+                        running.decrementAndGet();
+                        return scenario;
+                    });
+                }));
+            }
+        }
+        for (int i = 0; i < SCENARIOS; i++) {
+            assertEquals("Wrong result!", Integer.valueOf(i), results.get(i).get());
+        }
+        assertTrue("Too many CPU phases at once: " + most.get(), most.get() <= PERMITS);
+    }
+
+    /**
+     * Test that stepping through the executor gives the same run as stepping
+     * the engine directly.
+     *
+     * @throws IOException if the map cannot be read.
+     * @throws InterruptedException if the test is interrupted.
+     * @throws ExecutionException if a scenario fails.
+     */
+    @Test
+    public void testStepMatchesEngine()
+        throws IOException, InterruptedException, ExecutionException {
+        final CityMap city = CityReader.load("city_map2.txt", null);
+        final List<Future<String>> results = new ArrayList<>();
+        try (ScenarioExecutor executor = new ScenarioExecutor(PERMITS)) {
+            for (int seed = 0; seed < PERMITS * 2; seed++) {
+                final long scenarioSeed = seed;
+                results.add(executor.submit(() -> {
+                    final SimulationEngine engine = city.newEngine();
+                    engine.setSeed(scenarioSeed);
+                    executor.step(engine, TICKS);
+                    return describe(engine);
+                }));
+            }
+        }
+        for (int seed = 0; seed < results.size(); seed++) {
+            final SimulationEngine engine = city.newEngine();
+            engine.setSeed(seed);
+            engine.step(TICKS);
+            assertEquals("Executor changed the run!", describe(engine),
+                         results.get(seed).get());
+        }
+    }
+
+    /**
+     * Describes where every vehicle of a simulation is and whether it is
+     * alive.
+     *
+     * @param theEngine The simulation.
+     * @return the description.
+     */
+    private static String describe(final SimulationEngine theEngine) {
+        final StringBuilder result = new StringBuilder();
+        result.append(theEngine.getTimestep());
+        for (final Vehicle v : theEngine.getVehicles()) {
+            result.append(' ').append(v.getX()).append(',').append(v.getY())
+                .append(v.isAlive() ? '+' : '-');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,578 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.AbstractVehicle;
+import model.Atv;
+import model.Bicycle;
+import model.Car;
+import model.Direction;
+import model.ExecutionMode;
+import model.Human;
+import model.JmxSimulationMetrics;
+import model.Light;
+import model.SimulationEngine;
+import model.Taxi;
+import model.Terrain;
+import model.Truck;
+import model.Vehicle;
+import model.WorldSnapshot;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the headless SimulationEngine.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class SimulationEngineTest {
+
+    /**
+     * The number of ticks to compare. Revived vehicles face a random
+     * direction, so the vehicles on both sides are seeded alike.
+     */
+    private static final int TICKS_TO_COMPARE = 1000;
+
+    /** The seed of the compared runs, so failures can be replayed. */
+    private static final long SEED = 305L;
+
+    /**
+     * The number of copies of the city drivers in the parallel test, enough
+     * for the engine to split the first phase between several tasks.
+     */
+    private static final int PARALLEL_COPIES = 160;
+
+    /**
+     * The number of ticks in the parallel test. The copies all share squares,
+     * so each tick costs as much as many ticks of the real city.
+     */
+    private static final int PARALLEL_TICKS = 200;
+
+    /** A one-lane street with a crosswalk in the middle. */
+    private static final String[] CROSSWALK_MAP = {
+        "XXXXX",
+        "X|#|X",
+        "XXXXX",
+    };
+
+    /** A one-lane street with a traffic light in the middle. */
+    private static final String[] LIGHT_MAP = {
+        "XXXXX",
+        "X|+|X",
+        "XXXXX",
+    };
+
+    /** The street grid of city_map1.txt. */
+    private static final String[] CITY_MAP = {
+        "XXXXXXXXXXXXXXXXXXXXXXXX",
+        "X|||+|||||||+||+|||||||X",
+        "X|--|-------#---|--.--|X",
+        "X|--+.......|---|--.--|X",
+        "X|..|-------|---#--.--|X",
+        "X|--|||||||||||||--.--|X",
+        "X|--|---.---|---|--.--|X",
+        "X|||+|||||||+...|||||||X",
+        "X|--|-------|------|--|X",
+        "X+||||||||#|+|||#|||..|X",
+        "X|----|--.---------#---X",
+        "X||||||||||||||+||||---X",
+        "XXXXXXXXXXXXXXXXXXXXXXXX",
+    };
+
+    /**
+     * Builds a terrain grid from rows of map letters.
+     *
+     * @param theRows The rows of the map.
+     * @return the terrain grid, indexed [y][x].
+     */
+    private static Terrain[][] grid(final String... theRows) {
+        final Terrain[][] result = new Terrain[theRows.length][];
+        for (int y = 0; y < theRows.length; y++) {
+            result[y] = new Terrain[theRows[y].length()];
+            for (int x = 0; x < theRows[y].length(); x++) {
+                result[y][x] = Terrain.valueOf(theRows[y].charAt(x));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the non-random drivers from city_map1.txt, whose moves do not
+     * depend on a random number generator.
+     *
+     * @return the vehicles, in file order.
+     */
+    private static List<AbstractVehicle> cityDrivers() {
+        final List<AbstractVehicle> result = new ArrayList<>();
+        result.add(new Bicycle(14, 1, Direction.WEST));
+        result.add(new Bicycle(5, 7, Direction.WEST));
+        result.add(new Bicycle(13, 7, Direction.WEST));
+        result.add(new Taxi(18, 1, Direction.EAST));
+        result.add(new Taxi(8, 5, Direction.EAST));
+        result.add(new Car(13, 11, Direction.EAST));
+        result.add(new Car(9, 1, Direction.EAST));
+        return result;
+    }
+
+    /** Test that a vehicle moving onto an occupied square collides with it. */
+    @Test
+    public void testCollisionOnSharedSquare() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        final Car car = new Car(1, 1, Direction.EAST);
+        final Human human = new Human(2, 1, Direction.NORTH);
+        vehicles.add(car);
+        vehicles.add(human);
+
+        final SimulationEngine engine = new SimulationEngine(grid(CROSSWALK_MAP), vehicles);
+        engine.step();
+
+        assertEquals("Car should have driven onto the crosswalk!", 2, car.getX());
+        assertFalse("Human should have been run over!", human.isAlive());
+        assertTrue("Car should survive hitting a human!", car.isAlive());
+    }
+
+    /**
+     * Test that a dead vehicle alone on its square stops taking turns, and
+     * takes them again when another vehicle moves onto its square.
+     */
+    @Test
+    public void testDeadVehiclesParked() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        final Car car = new Car(1, 1, Direction.EAST);
+        final Human human = new Human(2, 1, Direction.NORTH);
+        vehicles.add(car);
+        vehicles.add(human);
+        final SimulationEngine engine = new SimulationEngine(grid(CROSSWALK_MAP), vehicles);
+
+        engine.step();
+        assertEquals("Human shares the car's square!", 2, engine.getActiveVehicleCount());
+        engine.step();
+        assertEquals("Car should have driven on!", 3, car.getX());
+        assertEquals("Human is dead and alone!", 1, engine.getActiveVehicleCount());
+        engine.step();
+        assertEquals("Car should have turned back!", 2, car.getX());
+        assertEquals("Car ran over the human again!", 2, engine.getActiveVehicleCount());
+        assertFalse("Human should still be dead!", human.isAlive());
+
+        engine.step();
+        engine.reset();
+        assertEquals("Reset should wake everyone!", 2, engine.getActiveVehicleCount());
+    }
+
+    /**
+     * Test that a car waiting at a red light stops taking turns until the
+     * light changes.
+     */
+    @Test
+    public void testWaitingForLightParked() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        final Car car = new Car(1, 1, Direction.EAST);
+        vehicles.add(car);
+        final SimulationEngine engine = new SimulationEngine(grid(LIGHT_MAP), vehicles);
+
+        // the car turns to face the light just as it turns red
+        engine.step(2 * SimulationEngine.LIGHT_CHANGE_TICKS + 2);
+        assertEquals("Light should be red!", Light.RED, engine.getLight());
+        assertEquals("Car should be waiting at the light!", 3, car.getX());
+        assertEquals("Car should face the light!", Direction.WEST, car.getDirection());
+        assertEquals("Car is waiting for the light!", 0, engine.getActiveVehicleCount());
+
+        final JmxSimulationMetrics metrics = new JmxSimulationMetrics();
+        engine.setMetrics(metrics);
+        engine.step();
+        assertEquals("Parked car should count as blocked!", 1, metrics.getVehiclesBlocked());
+        assertEquals("Parked car should count as waiting!", 1, metrics.getVehiclesWaiting());
+
+        engine.step(SimulationEngine.LIGHT_CHANGE_TICKS - 3);
+        assertEquals("Light should be green!", Light.GREEN, engine.getLight());
+        assertEquals("Car should not have moved on red!", 3, car.getX());
+        assertEquals("Light change should wake the car!", 1, engine.getActiveVehicleCount());
+        engine.step();
+        assertEquals("Car should drive through on green!", 2, car.getX());
+    }
+
+    /** Test that the engine records the squares that changed. */
+    @Test
+    public void testDirtyCells() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        vehicles.add(new Car(1, 1, Direction.EAST));
+        vehicles.add(new Human(2, 1, Direction.NORTH));
+        final SimulationEngine engine = new SimulationEngine(grid(CROSSWALK_MAP), vehicles);
+
+        engine.step();
+        final Set<String> dirty = new HashSet<>();
+        for (int i = 0; i < engine.getDirtyCellCount(); i++) {
+            dirty.add(engine.getDirtyCellX(i) + "," + engine.getDirtyCellY(i));
+        }
+        assertTrue("Square the car left should be dirty!", dirty.contains("1,1"));
+        assertTrue("Square the car entered should be dirty!", dirty.contains("2,1"));
+        assertEquals("Only two squares changed!", 2, dirty.size());
+        assertFalse("Lights have not changed yet!", engine.haveLightsChanged());
+
+        engine.clearDirtyCells();
+        assertEquals("Dirty squares not cleared!", 0, engine.getDirtyCellCount());
+        engine.step(SimulationEngine.LIGHT_CHANGE_TICKS - 1);
+        assertTrue("Lights should have changed!", engine.haveLightsChanged());
+
+        engine.clearDirtyCells();
+        engine.reset();
+        assertTrue("Reset should make every square dirty!", engine.isAllDirty());
+    }
+
+    /** Test that published snapshots hold the state of their own tick. */
+    @Test
+    public void testSnapshots() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        final Car car = new Car(1, 1, Direction.EAST);
+        vehicles.add(car);
+        final SimulationEngine engine = new SimulationEngine(grid(CROSSWALK_MAP), vehicles);
+        assertNull("Nothing published yet!", engine.getSnapshot());
+
+        engine.setSnapshotPublishing(true);
+        final WorldSnapshot start = engine.getSnapshot();
+        assertNotNull("Turning publishing on should publish!", start);
+        engine.step();
+        final WorldSnapshot next = engine.getSnapshot();
+
+        assertEquals("Snapshot changed after it was taken!", 1, start.getX(0));
+        assertEquals("Wrong timestep!", 0, start.getTimestep());
+        assertEquals("Wrong x!", car.getX(), next.getX(0));
+        assertEquals("Wrong y!", car.getY(), next.getY(0));
+        assertEquals("Wrong direction!", car.getDirection(), next.getDirection(0));
+        assertEquals("Wrong name!", "car", next.getName(0));
+        assertEquals("Wrong image!", "car.gif", next.getImageFileName(0));
+        assertTrue("Car should be alive!", next.isAlive(0));
+        assertEquals("Wrong light!", engine.getLight(), next.getLight());
+        assertEquals("Wrong timestep!", 1, next.getTimestep());
+    }
+
+    /** Test that a snapshot is only published after the last one was taken. */
+    @Test
+    public void testSnapshotsPublishedWhenTaken() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        vehicles.add(new Car(1, 1, Direction.EAST));
+        final SimulationEngine engine = new SimulationEngine(grid(CROSSWALK_MAP), vehicles);
+        engine.setSnapshotPublishing(true);
+        assertEquals("Wrong timestep!", 0, engine.getSnapshot().getTimestep());
+
+        engine.step();
+        final WorldSnapshot first = engine.getSnapshot();
+        assertEquals("Taken snapshot should be replaced!", 1, first.getTimestep());
+        engine.step();
+        engine.step();
+        engine.step();
+        final WorldSnapshot second = engine.getSnapshot();
+        assertEquals("Untaken snapshot should not be replaced!", 2, second.getTimestep());
+        assertSame("Snapshot should not change between ticks!", second,
+                   engine.getSnapshot());
+
+        final WorldSnapshot taken = engine.takeSnapshot();
+        assertEquals("Wrong timestep!", 4, taken.getTimestep());
+        engine.step();
+        assertEquals("Taken snapshot should be replaced!", 5,
+                     engine.getSnapshot().getTimestep());
+    }
+
+    /** Test that reset restores the vehicles, the clock and the lights. */
+    @Test
+    public void testResetAndLightCycle() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        final Car car = new Car(1, 1, Direction.EAST);
+        vehicles.add(car);
+        final SimulationEngine engine = new SimulationEngine(grid(CROSSWALK_MAP), vehicles);
+
+        engine.step(SimulationEngine.LIGHT_CHANGE_TICKS);
+        assertEquals("Timestep not advanced!", SimulationEngine.LIGHT_CHANGE_TICKS,
+                     engine.getTimestep());
+        assertEquals("Lights should have changed!", Light.YELLOW, engine.getLight());
+
+        engine.reset();
+        assertEquals("Timestep not reset!", 0, engine.getTimestep());
+        assertEquals("Lights not reset!", Light.GREEN, engine.getLight());
+        assertEquals("Car not reset!", 1, car.getX());
+    }
+
+    /**
+     * Test that the engine moves and collides vehicles exactly like the
+     * original loop that compared every pair of vehicles on every tick.
+     */
+    @Test
+    public void testMatchesPairwiseCollisionLoop() {
+        final Terrain[][] grid = grid(CITY_MAP);
+        final List<Vehicle> actual = new ArrayList<Vehicle>(cityDrivers());
+        assertMatchesReference(grid, new SimulationEngine(grid, actual), actual,
+                               new ArrayList<Vehicle>(cityDrivers()));
+    }
+
+    /**
+     * Test that a seeded SEQUENTIAL engine gives the same results as the
+     * original loop when random drivers are among the vehicles, so that dead
+     * vehicles parked on the timer wheel revive on the same tick as ones that
+     * are poked every tick.
+     */
+    @Test
+    public void testRandomDriversMatchPairwiseCollisionLoop() {
+        final Terrain[][] grid = grid(CITY_MAP);
+        final List<Vehicle> actual = new ArrayList<Vehicle>(cityDrivers());
+        actual.addAll(randomDrivers());
+        final List<Vehicle> expected = new ArrayList<Vehicle>(cityDrivers());
+        expected.addAll(randomDrivers());
+        final SimulationEngine engine = new SimulationEngine(grid, actual);
+        assertEquals("Default mode should be SEQUENTIAL!", ExecutionMode.SEQUENTIAL,
+                     engine.getExecutionMode());
+        final JmxSimulationMetrics metrics = new JmxSimulationMetrics();
+        engine.setMetrics(metrics);
+        assertMatchesReference(grid, engine, actual, expected);
+        assertTrue("Random drivers should have revived!", metrics.getRevivals() > 0);
+    }
+
+    /**
+     * Test that a PARALLEL engine gives the same results as the original loop,
+     * for a single set of drivers.
+     */
+    @Test
+    public void testParallelMatchesPairwiseCollisionLoop() {
+        final Terrain[][] grid = grid(CITY_MAP);
+        final List<Vehicle> actual = new ArrayList<Vehicle>(cityDrivers());
+        final SimulationEngine engine = new SimulationEngine(grid, actual);
+        engine.setExecutionMode(ExecutionMode.PARALLEL);
+        assertMatchesReference(grid, engine, actual, new ArrayList<Vehicle>(cityDrivers()));
+    }
+
+    /**
+     * Test that PARALLEL and SEQUENTIAL engines agree on a crowded map, where
+     * many vehicles are killed by vehicles that move before them.
+     */
+    @Test
+    public void testParallelMatchesSequential() {
+        final Terrain[][] grid = grid(CITY_MAP);
+        final List<Vehicle> sequential = new ArrayList<>();
+        final List<Vehicle> parallel = new ArrayList<>();
+        for (int copy = 0; copy < PARALLEL_COPIES; copy++) {
+            sequential.addAll(cityDrivers());
+            parallel.addAll(cityDrivers());
+        }
+        final SimulationEngine expected = new SimulationEngine(grid, sequential);
+        final SimulationEngine actual = new SimulationEngine(grid, parallel);
+        actual.setExecutionMode(ExecutionMode.PARALLEL);
+        expected.setSeed(SEED);
+        actual.setSeed(SEED);
+        assertEquals("Default mode should be SEQUENTIAL!", ExecutionMode.SEQUENTIAL,
+                     expected.getExecutionMode());
+
+        for (int tick = 1; tick <= PARALLEL_TICKS; tick++) {
+            expected.step();
+            actual.step();
+            for (int i = 0; i < sequential.size(); i++) {
+                final Vehicle e = sequential.get(i);
+                final Vehicle a = parallel.get(i);
+                final String where = "vehicle " + i + " at tick " + tick;
+                assertEquals("Wrong x for " + where, e.getX(), a.getX());
+                assertEquals("Wrong y for " + where, e.getY(), a.getY());
+                assertEquals("Wrong direction for " + where, e.getDirection(),
+                             a.getDirection());
+                assertEquals("Wrong alive state for " + where, e.isAlive(), a.isAlive());
+            }
+        }
+    }
+
+    /**
+     * Test that a seeded run of random drivers can be replayed exactly, both
+     * by a second engine and by the same engine after a reset.
+     */
+    @Test
+    public void testSeededRunsReplay() {
+        final Terrain[][] grid = grid(CITY_MAP);
+        final List<Vehicle> first = randomDrivers();
+        final List<Vehicle> second = randomDrivers();
+        final SimulationEngine firstEngine = new SimulationEngine(grid, first);
+        final SimulationEngine secondEngine = new SimulationEngine(grid, second);
+        firstEngine.setSeed(SEED);
+        secondEngine.setSeed(SEED);
+        firstEngine.setExecutionMode(ExecutionMode.PARALLEL);
+        secondEngine.setExecutionMode(ExecutionMode.PARALLEL);
+
+        firstEngine.step(TICKS_TO_COMPARE);
+        secondEngine.step(TICKS_TO_COMPARE);
+        final String[] expected = positions(first);
+        assertArrayEquals("Same seed should give the same run!", expected, positions(second));
+
+        secondEngine.reset();
+        secondEngine.step(TICKS_TO_COMPARE);
+        assertArrayEquals("Reset should replay the run!", expected, positions(second));
+    }
+
+    /**
+     * Test that metrics count what happens without changing it.
+     */
+    @Test
+    public void testMetrics() {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        vehicles.add(new Car(1, 1, Direction.EAST));
+        vehicles.add(new Human(2, 1, Direction.NORTH));
+        final SimulationEngine engine = new SimulationEngine(grid(CROSSWALK_MAP), vehicles);
+        final JmxSimulationMetrics metrics = new JmxSimulationMetrics();
+        engine.setMetrics(metrics);
+        engine.step();
+        assertEquals("Wrong number of ticks!", 1, metrics.getTickCount());
+        assertEquals("Car should have been counted moving!", 1, metrics.getVehiclesMoved());
+        assertEquals("Human should have died!", 1, metrics.getDeaths());
+        assertEquals("Wrong collisions!", "{car-human=1}", metrics.getCollisions().toString());
+        metrics.collided(new Truck(1, 1, Direction.EAST), new Car(1, 1, Direction.EAST));
+        metrics.collided(new Car(1, 1, Direction.EAST), new Truck(1, 1, Direction.EAST));
+        assertEquals("Pairs should not depend on which vehicle moved!",
+                     "{car-human=1, car-truck=2}", metrics.getCollisions().toString());
+        assertTrue("Percentile below the mean!", metrics.getTickNanosPercentile(100)
+                        >= metrics.getMeanTickNanos());
+
+        final List<Vehicle> measured = randomDrivers();
+        final List<Vehicle> unmeasured = randomDrivers();
+        final SimulationEngine measuredEngine = new SimulationEngine(grid(CITY_MAP), measured);
+        final SimulationEngine unmeasuredEngine =
+            new SimulationEngine(grid(CITY_MAP), unmeasured);
+        measuredEngine.setSeed(SEED);
+        unmeasuredEngine.setSeed(SEED);
+        metrics.reset();
+        measuredEngine.setMetrics(metrics);
+        measuredEngine.step(TICKS_TO_COMPARE);
+        unmeasuredEngine.step(TICKS_TO_COMPARE);
+        assertArrayEquals("Metrics changed the run!", positions(unmeasured),
+                          positions(measured));
+
+        int dead = 0;
+        for (final Vehicle v : measured) {
+            if (!v.isAlive()) {
+                dead++;
+            }
+        }
+        assertEquals("Wrong number of ticks!", TICKS_TO_COMPARE, metrics.getTickCount());
+        assertEquals("Deaths and revivals do not add up!", dead,
+                     metrics.getDeaths() - metrics.getRevivals());
+        assertEquals("Wrong number of active vehicles!",
+                     measuredEngine.getActiveVehicleCount(), metrics.getActiveVehicles());
+        assertTrue("There should have been reversals!", metrics.getReversals() > 0);
+    }
+
+    /**
+     * Builds random drivers on the city map, several of each random type.
+     *
+     * @return the vehicles.
+     */
+    private static List<Vehicle> randomDrivers() {
+        final List<Vehicle> result = new ArrayList<>();
+        for (int x = 1; x < CITY_MAP[1].length() - 1; x++) {
+            result.add(new Truck(x, 1, Direction.EAST));
+            result.add(new Atv(x, 1, Direction.WEST));
+        }
+        result.add(new Human(5, 3, Direction.EAST));
+        result.add(new Human(9, 10, Direction.NORTH));
+        return result;
+    }
+
+    /**
+     * Describes where every vehicle is, which way it faces and whether it is
+     * alive.
+     *
+     * @param theVehicles The vehicles.
+     * @return one description per vehicle.
+     */
+    private static String[] positions(final List<Vehicle> theVehicles) {
+        final String[] result = new String[theVehicles.size()];
+        for (int i = 0; i < result.length; i++) {
+            final Vehicle v = theVehicles.get(i);
+            result[i] = v.getX() + "," + v.getY() + " " + v.getDirection() + " "
+                            + v.isAlive();
+        }
+        return result;
+    }
+
+    /**
+     * Runs an engine alongside the original loop over a copy of its vehicles
+     * and checks that every vehicle ends every tick in the same state.
+     *
+     * @param theGrid The terrain grid.
+     * @param theEngine The engine under test.
+     * @param theActual The engine's vehicles.
+     * @param theExpected Copies of the engine's vehicles, for the original loop.
+     */
+    private static void assertMatchesReference(final Terrain[][] theGrid,
+                                               final SimulationEngine theEngine,
+                                               final List<Vehicle> theActual,
+                                               final List<Vehicle> theExpected) {
+        // an engine that is never stepped gives the reference vehicles the
+        // same random sources as the engine under test
+        new SimulationEngine(theGrid, theExpected).setSeed(SEED);
+        theEngine.setSeed(SEED);
+
+        Light light = Light.GREEN;
+        for (int tick = 1; tick <= TICKS_TO_COMPARE; tick++) {
+            referenceStep(theGrid, theExpected, light);
+            if (tick % SimulationEngine.LIGHT_CHANGE_TICKS == 0) {
+                light = light.advance();
+            }
+            theEngine.step();
+
+            for (int i = 0; i < theExpected.size(); i++) {
+                final Vehicle e = theExpected.get(i);
+                final Vehicle a = theActual.get(i);
+                final String where = "vehicle " + i + " at tick " + tick;
+                assertEquals("Wrong x for " + where, e.getX(), a.getX());
+                assertEquals("Wrong y for " + where, e.getY(), a.getY());
+                assertEquals("Wrong direction for " + where, e.getDirection(),
+                             a.getDirection());
+                assertEquals("Wrong alive state for " + where, e.isAlive(), a.isAlive());
+            }
+        }
+    }
+
+    /**
+     * The original tick loop, which checks every vehicle against every other.
+     *
+     * @param theGrid The terrain grid.
+     * @param theVehicles The vehicles.
+     * @param theLight The light color for this tick.
+     */
+    private static void referenceStep(final Terrain[][] theGrid,
+                                      final List<Vehicle> theVehicles, final Light theLight) {
+        for (final Vehicle v : theVehicles) {
+            final Map<Direction, Terrain> neighbors = new HashMap<>();
+            for (final Direction dir : Direction.values()) {
+                final int y = v.getY() + dir.dy();
+                final int x = v.getX() + dir.dx();
+                if (0 <= y && y < theGrid.length && 0 <= x && x < theGrid[y].length) {
+                    neighbors.put(dir, theGrid[y][x]);
+                }
+            }
+
+            if (v.isAlive()) {
+                final Direction newDirection = v.chooseDirection(neighbors);
+                v.setDirection(newDirection);
+                if (v.canPass(neighbors.get(newDirection), theLight)) {
+                    v.setX(v.getX() + newDirection.dx());
+                    v.setY(v.getY() + newDirection.dy());
+                }
+            } else {
+                v.poke();
+            }
+
+            for (final Vehicle other : theVehicles) {
+                if (v != other && v.getX() == other.getX() && v.getY() == other.getY()) {
+                    v.collide(other);
+                    other.collide(v);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import model.CityMap;
+import model.CityReader;
+import model.Light;
+import model.SimulationEngine;
+import model.TrafficSignals;
+import model.Vehicle;
+import model.WorldSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the per-intersection TrafficSignals, and of an engine run with them.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public class TrafficSignalsTest {
+
+    /** The number of ticks to compare. */
+    private static final int TICKS_TO_COMPARE = 1000;
+
+    /** The seed for the random drivers. */
+    private static final long SEED = 305L;
+
+    /** The number of intersections in city_map1.txt. */
+    private static final int INTERSECTIONS = 13;
+
+    /** The x coordinate of the light of the two-square intersection. */
+    private static final int JOINED_X = 12;
+
+    /** The city of city_map1.txt. */
+    private CityMap myCity;
+
+    /** The signals of the city. */
+    private TrafficSignals mySignals;
+
+    /**
+     * Reads the city before each test.
+     *
+     * @throws IOException if the map cannot be read.
+     */
+    @Before
+    public void setUp() throws IOException {
+        myCity = CityReader.load("city_map1.txt", null);
+        mySignals = new TrafficSignals(myCity.getGrid());
+    }
+
+    /** Test that squares joined side to side form one intersection. */
+    @Test
+    public void testIntersections() {
+        assertEquals("Wrong number of intersections!", INTERSECTIONS,
+                     mySignals.getIntersectionCount());
+        assertEquals("The first light should be intersection 0!", 0,
+                     mySignals.getIntersection(4, 1));
+        assertEquals("A light and the crosswalk below it should be joined!",
+                     mySignals.getIntersection(JOINED_X, 1),
+                     mySignals.getIntersection(JOINED_X, 2));
+        assertEquals("A street is no intersection!", TrafficSignals.NONE,
+                     mySignals.getIntersection(1, 1));
+        assertEquals("Off the map is no intersection!", TrafficSignals.NONE,
+                     mySignals.getIntersection(-1, 1));
+    }
+
+    /** Test that the default timing shows the engine's city-wide light. */
+    @Test
+    public void testDefaultTimingMatchesCityLight() {
+        final SimulationEngine engine = myCity.newEngine();
+        for (int tick = 0; tick < TICKS_TO_COMPARE; tick++) {
+            for (int i = 0; i < INTERSECTIONS; i++) {
+                assertEquals("Wrong light on tick " + tick, engine.getLight(),
+                             mySignals.getLight(i, tick));
+            }
+            engine.step();
+        }
+    }
+
+    /** Test the phases and changes of an intersection with its own timing. */
+    @Test
+    public void testTiming() {
+        final int green = 5;
+        final int yellow = 2;
+        final int red = 7;
+        final int offset = 3;
+        final TrafficSignals original = mySignals;
+        mySignals = mySignals.withTiming(1, green, yellow, red, offset);
+        assertEquals("The original should keep its timing!", SimulationEngine.LIGHT_CHANGE_TICKS,
+                     original.getGreen(1));
+        assertEquals("Wrong light at the start!", Light.GREEN, mySignals.getLight(1, 0));
+        assertEquals("Green should end after the offset!", green - offset,
+                     mySignals.getNextChange(1, 0));
+        assertEquals("Wrong light after green!", Light.YELLOW,
+                     mySignals.getLight(1, green - offset));
+        assertEquals("Wrong light after yellow!", Light.RED,
+                     mySignals.getLight(1, green + yellow - offset));
+        assertEquals("Red should end with the cycle!", green + yellow + red - offset,
+                     mySignals.getNextChange(1, green + yellow - offset));
+        assertEquals("Other intersections should keep their timing!", Light.GREEN,
+                     mySignals.getLight(0, green));
+    }
+
+    /**
+     * Test that an engine with signals on the default timing runs exactly as
+     * one with the city-wide light, and that changing the timing changes the
+     * traffic.
+     */
+    @Test
+    public void testEngineWithSignals() {
+        final SimulationEngine expected = myCity.newEngine();
+        final SimulationEngine actual = myCity.newEngine();
+        expected.setSeed(SEED);
+        actual.setSeed(SEED);
+        actual.setSignals(mySignals);
+        for (int tick = 0; tick < TICKS_TO_COMPARE; tick++) {
+            expected.step();
+            actual.step();
+            assertEquals("Vehicles differ on tick " + tick, positions(expected.getVehicles()),
+                         positions(actual.getVehicles()));
+        }
+
+        final int[] ones = new int[INTERSECTIONS];
+        final int[] offsets = new int[INTERSECTIONS];
+        for (int i = 0; i < INTERSECTIONS; i++) {
+            ones[i] = 1;
+            offsets[i] = i;
+        }
+        mySignals = mySignals.withTimings(ones, ones, ones, offsets);
+        expected.reset();
+        actual.reset();
+        actual.setSignals(mySignals);
+        boolean differs = false;
+        for (int tick = 0; tick < TICKS_TO_COMPARE && !differs; tick++) {
+            expected.step();
+            actual.step();
+            differs = !positions(expected.getVehicles()).equals(
+                positions(actual.getVehicles()));
+            assertEquals("Wrong light shown!", mySignals.getLight(0, actual.getTimestep()),
+                         actual.getLightAt(4, 1));
+        }
+        assertTrue("Fast signals should change the traffic!", differs);
+    }
+
+    /**
+     * Test that published snapshots show each intersection's own light, and
+     * that the engine reports a change of the lights on just the ticks that
+     * change one.
+     */
+    @Test
+    public void testSnapshotLights() {
+        final int[] green = new int[INTERSECTIONS];
+        final int[] yellow = new int[INTERSECTIONS];
+        final int[] red = new int[INTERSECTIONS];
+        final int[] offsets = new int[INTERSECTIONS];
+        for (int i = 0; i < INTERSECTIONS; i++) {
+            green[i] = i + 1;
+            yellow[i] = 1;
+            red[i] = 2;
+            offsets[i] = i;
+        }
+        mySignals = mySignals.withTimings(green, yellow, red, offsets);
+        final SimulationEngine engine = myCity.newEngine();
+        engine.setSignals(mySignals);
+        engine.setSnapshotPublishing(true);
+        boolean mixed = false;
+        for (int tick = 0; tick < TICKS_TO_COMPARE; tick++) {
+            final WorldSnapshot before = engine.getSnapshot();
+            engine.clearDirtyCells();
+            engine.step();
+            final WorldSnapshot after = engine.getSnapshot();
+            assertEquals("Wrong light change on tick " + tick, !before.hasSameLights(after),
+                         engine.haveLightsChanged());
+            final Set<Light> shown = EnumSet.noneOf(Light.class);
+            for (int y = 0; y < engine.getHeight(); y++) {
+                for (int x = 0; x < engine.getWidth(); x++) {
+                    if (mySignals.getIntersection(x, y) != TrafficSignals.NONE) {
+                        assertEquals("Wrong light at " + x + ", " + y,
+                                     engine.getLightAt(x, y), after.getLightAt(x, y));
+                        shown.add(after.getLightAt(x, y));
+                    }
+                }
+            }
+            mixed |= shown.size() > 1;
+        }
+        assertTrue("Intersections should show different lights!", mixed);
+    }
+
+    /**
+     * Describes where every vehicle is and whether it is alive.
+     *
+     * @param theVehicles The vehicles.
+     * @return the description.
+     */
+    private static String positions(final List<Vehicle> theVehicles) {
+        final StringBuilder result = new StringBuilder();
+        for (final Vehicle v : theVehicles) {
+            result.append(v.getX()).append(',').append(v.getY()).append(v.getDirection())
+                .append(v.isAlive()).append(' ');
+        }
+        return result.toString();
+    }
+}
@@ -34,6 +34,12 @@ public class TruckTest {
      */
     private static final int TRIES_FOR_RANDOMNESS = 50;
 
+    /** The number of directions chosen in the test of the distribution. */
+    private static final int TRIES_FOR_DISTRIBUTION = 3000;
+
+    /** How far apart the counts of two equally likely directions may be. */
+    private static final int DISTRIBUTION_TOLERANCE = 400;
+
     /** Default truck object to be used in tests. */
     private Truck myTruck;
 
@@ -182,6 +188,39 @@ public class TruckTest {
     }
 
 
+    /**
+     * Test case for the chooseDirection method. Ensures a Truck object picks
+     * evenly among the directions it can take, leaving out a wall and the
+     * direction it came from.
+     */
+    @Test
+    public void testChooseDirectionDistribution() {
+
+        final Map<Direction, Terrain> neighbors = new HashMap<Direction, Terrain>();
+        neighbors.put(Direction.NORTH, Terrain.STREET);
+        neighbors.put(Direction.EAST, Terrain.WALL);
+        neighbors.put(Direction.WEST, Terrain.LIGHT);
+        neighbors.put(Direction.SOUTH, Terrain.STREET);
+
+        final Truck t2 = new Truck(0, 0, Direction.NORTH);
+        int north = 0;
+        int west = 0;
+        for (int count = 0; count < TRIES_FOR_DISTRIBUTION; count++) {
+            final Direction d = t2.chooseDirection(neighbors);
+            if (d == Direction.NORTH) {
+                north++;
+            } else if (d == Direction.WEST) {
+                west++;
+            } else {
+                fail("Truck chose a wall or reversed: " + d);
+            }
+        }
+
+        assertTrue("Truck should go north about half the time, went " + north,
+                   Math.abs(north - west) < DISTRIBUTION_TOLERANCE);
+    }
+
+
     /**
      * Test case for the chooseDirection method. Ensures a Truck object
      * reverses only when necessary. 
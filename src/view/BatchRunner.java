@@ -0,0 +1,404 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package view;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.CityMap;
+import model.CityReader;
+import model.SimulationEngine;
+import model.SimulationMetrics;
+import model.Vehicle;
+
+/**
+ * Runs many independent, headless simulations of one city, each with its own
+ * seed, on a pool of threads, and writes one line of statistics per run to a
+ * CSV file as the runs finish. The runs share nothing but the city's terrain
+ * grid, which never changes, so they scale with the number of cores. Run r
+ * uses seed + r as its seed, so any run can be replayed on its own. A summary
+ * of the runs is written to the standard error stream at the end. Usage:
+ * BatchRunner map runs ticks seed [threads [output.csv]]
+ *
+ * <p>The map may be in the text or the binary format; the thread count
+ * defaults to the number of processors, and the output to the standard
+ * output stream.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class BatchRunner {
+
+    /** The header line of the CSV output. */
+    public static final String HEADER =
+        "run,seed,ticks,collisions,deaths,revivals,dead_at_end,moved,blocked,waiting,"
+        + "reversals";
+
+    /** The least number of command line arguments. */
+    private static final int MIN_ARGS = 4;
+
+    /** The most command line arguments. */
+    private static final int MAX_ARGS = 6;
+
+    /** The number of runs started ahead for each thread, so none sits idle. */
+    private static final int RUNS_AHEAD_PER_THREAD = 2;
+
+    /** The number of nanoseconds in a second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** The z-score of a 95% confidence interval. */
+    private static final double Z_95 = 1.96;
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private BatchRunner() {
+        // do nothing
+    }
+
+    /**
+     * Runs the batch described by the arguments.
+     *
+     * @param theArgs The map file name, the number of runs, the number of
+     *            ticks per run, the first seed, and optionally the number of
+     *            threads and the output file name.
+     */
+    public static void main(final String... theArgs) {
+        if (theArgs.length >= MIN_ARGS && theArgs.length <= MAX_ARGS) {
+            try (CityMap city = CityReader.load(theArgs[0], null)) {
+                int arg = 1;
+                final int runs = Integer.parseInt(theArgs[arg++]);
+                final long ticks = Long.parseLong(theArgs[arg++]);
+                final long seed = Long.parseLong(theArgs[arg++]);
+                int threads = Runtime.getRuntime().availableProcessors();
+                if (arg < theArgs.length) {
+                    threads = Integer.parseInt(theArgs[arg++]);
+                }
+                final Writer out;
+                if (arg < theArgs.length) {
+                    out = Files.newBufferedWriter(Paths.get(theArgs[arg]),
+                                                  StandardCharsets.US_ASCII);
+                } else {
+                    out = new BufferedWriter(new OutputStreamWriter(System.out,
+                                                                    StandardCharsets.US_ASCII));
+                }
+
+                final long start = System.nanoTime();
+                final Summary summary;
+                try {
+                    summary = run(city, runs, ticks, seed, threads, out);
+                } finally {
+                    out.close();
+                }
+                final double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+                System.err.printf("%d runs of %d ticks on %d threads in %.1f s"
+                                  + " (%.0f ticks/s)%n", runs, ticks, threads, seconds,
+                                  runs * ticks / seconds);
+                System.err.printf("Collisions per run: %.2f +/- %.2f (95%%)%n",
+                                  summary.getMeanCollisions(),
+                                  Z_95 * summary.getCollisionStandardError());
+                System.err.printf("Deaths per run: %.2f%n", summary.getMeanDeaths());
+            } catch (final IOException | IllegalArgumentException e) {
+                System.err.println("Could not run the batch: " + e.getMessage());
+                System.exit(1);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.exit(1);
+            }
+        } else {
+            System.err.println("Usage: BatchRunner map runs ticks seed [threads [output.csv]]");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a batch of simulations of a city and writes the CSV header and one
+     * line per run to the given writer, in the order the runs finish. Only a
+     * few runs per thread are started ahead, so a batch of any size needs
+     * memory for just those.
+     *
+     * @param theCity The city.
+     * @param theRuns The number of runs.
+     * @param theTicks The number of ticks per run.
+     * @param theSeed The seed of the first run; run r uses theSeed + r.
+     * @param theThreads The number of threads to run on.
+     * @param theOut The writer to write the CSV lines to; it is flushed but
+     *            not closed.
+     * @return the summary of the runs.
+     * @throws IOException if the CSV lines cannot be written.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     *             for a run.
+     */
+    public static Summary run(final CityMap theCity, final int theRuns, final long theTicks,
+                              final long theSeed, final int theThreads, final Writer theOut)
+        throws IOException, InterruptedException {
+        if (theRuns < 0 || theTicks < 0 || theThreads <= 0) {
+            throw new IllegalArgumentException("Runs and ticks must not be negative,"
+                                               + " and there must be a thread");
+        }
+        theOut.write(HEADER + "\n");
+        final Summary result = new Summary();
+        final ExecutorService pool = Executors.newFixedThreadPool(theThreads);
+        try {
+            final CompletionService<RunStatistics> runs =
+                new ExecutorCompletionService<RunStatistics>(pool);
+            final int ahead = theThreads * RUNS_AHEAD_PER_THREAD;
+            int started = 0;
+            for (int finished = 0; finished < theRuns; finished++) {
+                while (started < theRuns && started - finished < ahead) {
+                    runs.submit(new RunStatistics(theCity, started, theSeed + started,
+                                                  theTicks));
+                    started++;
+                }
+                final RunStatistics run = runs.take().get();
+                theOut.write(run.toString() + "\n");
+                result.add(run);
+            }
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("A run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        theOut.flush();
+        return result;
+    }
+
+    /**
+     * The aggregate statistics of a batch of runs.
+     */
+    public static final class Summary {
+
+        /** The number of runs. */
+        private int myRuns;
+
+        /** The total number of collisions. */
+        private double myCollisions;
+
+        /** The total of the squares of the number of collisions per run. */
+        private double myCollisionSquares;
+
+        /** The total number of deaths. */
+        private double myDeaths;
+
+        /**
+         * Constructs the summary of no runs.
+         */
+        Summary() {
+            // no runs yet
+        }
+
+        /**
+         * Adds a run to the summary.
+         *
+         * @param theRun The statistics of the run.
+         */
+        void add(final RunStatistics theRun) {
+            myRuns++;
+            myCollisions += theRun.myCollisions;
+            myCollisionSquares += (double) theRun.myCollisions * theRun.myCollisions;
+            myDeaths += theRun.myDeaths;
+        }
+
+        /**
+         * Returns the number of runs.
+         *
+         * @return the number of runs.
+         */
+        public int getRuns() {
+            return myRuns;
+        }
+
+        /**
+         * Returns the mean number of collisions per run.
+         *
+         * @return the mean, or 0 if there were no runs.
+         */
+        public double getMeanCollisions() {
+            return mean(myCollisions);
+        }
+
+        /**
+         * Returns the standard error of the mean number of collisions per run.
+         *
+         * @return the standard error, or 0 if there were fewer than two runs.
+         */
+        public double getCollisionStandardError() {
+            double result = 0;
+            if (myRuns > 1) {
+                final double mean = getMeanCollisions();
+                final double variance =
+                    (myCollisionSquares - myRuns * mean * mean) / (myRuns - 1);
+                result = Math.sqrt(Math.max(0, variance) / myRuns);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the mean number of deaths per run.
+         *
+         * @return the mean, or 0 if there were no runs.
+         */
+        public double getMeanDeaths() {
+            return mean(myDeaths);
+        }
+
+        /**
+         * Returns a total divided by the number of runs.
+         *
+         * @param theTotal The total.
+         * @return the mean, or 0 if there were no runs.
+         */
+        private double mean(final double theTotal) {
+            double result = 0;
+            if (myRuns > 0) {
+                result = theTotal / myRuns;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * One run of a simulation, which counts what happens as it goes. Each run
+     * builds its own vehicles and engine, so runs on different threads share
+     * nothing that changes.
+     */
+    private static final class RunStatistics implements Callable<RunStatistics>,
+                    SimulationMetrics {
+
+        /** The city. */
+        private final CityMap myCity;
+
+        /** The number of the run. */
+        private final int myRun;
+
+        /** The seed of the run. */
+        private final long mySeed;
+
+        /** The number of ticks to run. */
+        private final long myTicks;
+
+        /** The number of collisions between living vehicles. */
+        private long myCollisions;
+
+        /** The number of deaths. */
+        private long myDeaths;
+
+        /** The number of revivals. */
+        private long myRevivals;
+
+        /** The number of vehicles dead at the end of the run. */
+        private int myDeadAtEnd;
+
+        /** The number of moves. */
+        private long myMoved;
+
+        /** The number of blocked turns. */
+        private long myBlocked;
+
+        /** The number of blocked turns skipped while parked at a light. */
+        private long myWaiting;
+
+        /** The number of reversals. */
+        private long myReversals;
+
+        /**
+         * Constructs a run that has not started.
+         *
+         * @param theCity The city.
+         * @param theRun The number of the run.
+         * @param theSeed The seed of the run.
+         * @param theTicks The number of ticks to run.
+         */
+        RunStatistics(final CityMap theCity, final int theRun, final long theSeed,
+                      final long theTicks) {
+            myCity = theCity;
+            myRun = theRun;
+            mySeed = theSeed;
+            myTicks = theTicks;
+        }
+
+        /**
+         * Runs the simulation.
+         *
+         * @return this run, with its statistics filled in.
+         */
+        @Override
+        public RunStatistics call() {
+            final SimulationEngine engine = myCity.newEngine();
+            engine.setSeed(mySeed);
+            engine.setMetrics(this);
+            engine.step(myTicks);
+            for (final Vehicle v : engine.getVehicles()) {
+                if (!v.isAlive()) {
+                    myDeadAtEnd++;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void tickCompleted(final long theTimestep, final long theNanos,
+                                  final int theMoved, final int theBlocked,
+                                  final int theWaiting, final int theReversed,
+                                  final int theActive) {
+            myMoved += theMoved;
+            myBlocked += theBlocked;
+            myWaiting += theWaiting;
+            myReversals += theReversed;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void collided(final Vehicle theMover, final Vehicle theOther) {
+            myCollisions++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void died(final Vehicle theVehicle) {
+            myDeaths++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void revived(final Vehicle theVehicle) {
+            myRevivals++;
+        }
+
+        /**
+         * Returns the run's line of the CSV output, in the order of HEADER.
+         *
+         * @return the line, without a line separator.
+         */
+        @Override
+        public String toString() {
+            return myRun + "," + mySeed + "," + myTicks + "," + myCollisions + "," + myDeaths
+                   + "," + myRevivals + "," + myDeadAtEnd + "," + myMoved + "," + myBlocked
+                   + "," + myWaiting + "," + myReversals;
+        }
+    }
+}
+
+// end class BatchRunner
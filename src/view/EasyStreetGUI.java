@@ -13,23 +13,19 @@ import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.MediaTracker;
 import java.awt.Paint;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
 
-import javax.swing.ImageIcon;
+import javax.management.JMException;
+
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JFrame;
@@ -42,16 +38,13 @@ import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
-import model.Atv;
-import model.Bicycle;
-import model.Car;
+import model.CityReader;
 import model.Direction;
-import model.Human;
+import model.JmxSimulationMetrics;
 import model.Light;
-import model.Taxi;
+import model.SimulationEngine;
 import model.Terrain;
-import model.Truck;
-import model.Vehicle;
+import model.WorldSnapshot;
 
 /**
  * The graphical user interface for the EasyStreet program.
@@ -109,6 +102,16 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
      */
     private static final String RESET_COMMAND = "Reset";
 
+    /**
+     * The Debug Mode command.
+     */
+    private static final String DEBUG_COMMAND = "Debug Mode";
+
+    /**
+     * The Decouple command, which runs the simulation on a thread of its own.
+     */
+    private static final String DECOUPLE_COMMAND = "Decouple";
+
     /**
      * The initial frames per second at which the simulation will run.
      */
@@ -119,6 +122,17 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
      */
     private static final int MAX_FRAMES_PER_SECOND = 60;
 
+    /**
+     * The initial number of simulation ticks per frame.
+     */
+    private static final int INITIAL_TICKS_PER_FRAME = 1;
+
+    /**
+     * The maximum number of simulation ticks per frame. When the simulation is
+     * decoupled, this setting runs it as fast as possible.
+     */
+    private static final int MAX_TICKS_PER_FRAME = 100;
+
     /**
      * The size in pixels of a side of one "square" on the grid.
      */
@@ -136,14 +150,20 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
     private static final int DEBUG_OFFSET = 10;
 
     /**
-     * The offset to use to position cross walk lines and to use for cross walk light size.
+     * The number of nanoseconds in a microsecond, for the tick durations
+     * shown in debug mode.
      */
-    private static final double CROSSWALK_SCALE = .25;
+    private static final long NANOS_PER_MICRO = 1000;
+
+    /**
+     * The percentile of the tick durations shown in debug mode.
+     */
+    private static final double TICK_PERCENTILE = 99;
 
     /**
-     * The number of clock ticks between light changes.
+     * The offset to use to position cross walk lines and to use for cross walk light size.
      */
-    private static final int LIGHT_CHANGE_TICKS = 19;
+    private static final double CROSSWALK_SCALE = .25;
 
 
     /**
@@ -181,35 +201,77 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
     private final Timer myTimer;
 
     /**
-     * A list of vehicles in the simulation.
+     * The simulation being displayed.
      */
-    private final List<Vehicle> myVehicles;
+    private SimulationEngine myEngine;
 
     /**
-     * The traffic lights in the simulation.
+     * The vehicle icons, read once and scaled to the size of a square.
      */
-    private Light myLights;
+    private IconCache myIcons;
 
     /**
-     * A flag indicating whether or not we are running in debug mode.
+     * The city map, drawn once; only the squares that show the lights are
+     * drawn again, when the lights change.
      */
-    private boolean myDebugFlag;
+    private BufferedImage myMapLayer;
 
     /**
-     * The terrain grid for the simulation.
+     * The snapshot whose lights the map layer was last drawn with.
      */
-    private Terrain[][] myGrid;
+    private WorldSnapshot myMapLights;
 
     /**
-     * The current timestep of the simulation.
+     * The snapshot the panel was last asked to show.
      */
-    private long myTimestep;
+    private WorldSnapshot myShownSnapshot;
+
+    /**
+     * The x-coordinates of the squares that show the lights.
+     */
+    private int[] myLightXs;
+
+    /**
+     * The y-coordinates of the squares that show the lights.
+     */
+    private int[] myLightYs;
+
+    /**
+     * A flag indicating whether or not we are running in debug mode.
+     */
+    private boolean myDebugFlag;
+
+    /**
+     * The measurements of the simulation, shown in debug mode and over JMX.
+     */
+    private JmxSimulationMetrics myMetrics;
 
     /**
      * The slider for "frames per second".
      */
     private JSlider mySlider;
 
+    /**
+     * The slider for "ticks per frame".
+     */
+    private JSlider myTicksSlider;
+
+    /**
+     * The label showing the ticks per frame.
+     */
+    private JLabel myTicksLabel;
+
+    /**
+     * Runs the simulation on a thread of its own when it is decoupled.
+     */
+    private SimulationRunner myRunner;
+
+    /**
+     * A flag indicating whether the simulation runs on a thread of its own,
+     * independent of the frame rate.
+     */
+    private boolean myDecoupledFlag;
+
     /**
      * The panel we render graphics on.
      */
@@ -226,8 +288,6 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
         // initialize instance fields
         myDelay = MY_DELAY_NUMERATOR / INITIAL_FRAMES_PER_SECOND;
         myTimer = new Timer(myDelay, this);
-        myVehicles = new ArrayList<Vehicle>();
-        myLights = Light.GREEN; 
 
         myDebugFlag = false;
         initGUI();
@@ -241,14 +301,28 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
      */
     private void initGUI() {
         try {
-            readCity(CITY_FILE);
+            myEngine = CityReader.read(CITY_FILE);
         } catch (final IOException ioe) {
             JOptionPane.showMessageDialog(this, "Could not read city map file " + CITY_FILE
                                           + ":\n\n" + ioe.getMessage(), "I/O Error",
                                           JOptionPane.ERROR_MESSAGE);
         }
 
+        // the panel paints from snapshots, so it never reads vehicles that
+        // another thread may be moving
+        myEngine.setSnapshotPublishing(true);
+        myShownSnapshot = myEngine.takeSnapshot();
+
+        myMetrics = new JmxSimulationMetrics();
+        myEngine.setMetrics(myMetrics);
+        try {
+            myMetrics.register(TITLE);
+        } catch (final JMException e) {
+            // the metrics are still shown in debug mode
+        }
+
         // set up graphical components
+        myIcons = new IconCache(SQUARE_SIZE, myEngine.getVehicles());
         myPanel = new EasyStreetPanel();
 
         mySlider = new JSlider(SwingConstants.HORIZONTAL, 0, MAX_FRAMES_PER_SECOND,
@@ -265,13 +339,30 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
                 if (value > 0) {
                     myDelay = MY_DELAY_NUMERATOR / value;
                     myTimer.setDelay(myDelay);
+                    updateTickRate();
                 }
             }
         });
 
-        final JCheckBox box = new JCheckBox("Debug Mode");
+        myRunner = new SimulationRunner(myEngine);
+        myTicksLabel = new JLabel();
+        myTicksSlider = new JSlider(SwingConstants.HORIZONTAL, 1, MAX_TICKS_PER_FRAME,
+                                    INITIAL_TICKS_PER_FRAME);
+        myTicksSlider.addChangeListener(new ChangeListener() {
+            /** Called in response to slider events in this window. */
+            @Override
+            public void stateChanged(final ChangeEvent theEvent) {
+                updateTickRate();
+            }
+        });
+        updateTickRate();
+
+        final JCheckBox box = new JCheckBox(DEBUG_COMMAND);
         box.addActionListener(this);
 
+        final JCheckBox decoupleBox = new JCheckBox(DECOUPLE_COMMAND);
+        decoupleBox.addActionListener(this);
+
         // layout
         final Container northPanel = new JPanel(new FlowLayout());
         northPanel.add(makeButton(START_COMMAND));
@@ -282,6 +373,9 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
         final Container southPanel = new JPanel(new FlowLayout());
         southPanel.add(new JLabel("FPS: "));
         southPanel.add(mySlider);
+        southPanel.add(myTicksLabel);
+        southPanel.add(myTicksSlider);
+        southPanel.add(decoupleBox);
         southPanel.add(box);
 
         final Container masterPanel = new JPanel(new BorderLayout());
@@ -298,98 +392,6 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
                     SCREEN_SIZE.height / 2 - getHeight() / 2);
     }
 
-    /**
-     * Reads the map from the specified file in the current working directory.
-     * 
-     * @param theFilename The filename.
-     * @throws IOException if there is a problem reading the map.
-     */
-    private void readCity(final String theFilename) throws IOException {
-        Scanner input;
-        try {
-            input = new Scanner(new File(theFilename));
-        } catch (final IOException e) {
-            input = new Scanner(getClass().getResourceAsStream(theFilename));
-        }
-
-        // First, we read the map description
-        readGrid(input);
-
-        // Then, we read where the initial vehicles are
-        readVehicles(input);
-    }
-
-    /**
-     * Reads the grid portion of the map file.
-     * 
-     * @param theInput The input scanner.
-     */
-    private void readGrid(final Scanner theInput) {
-        final int numRows = theInput.nextInt();
-        final int numColumns = theInput.nextInt();
-        theInput.nextLine();
-        myGrid = new Terrain[numRows][numColumns];
-        for (int row = 0; row < numRows; row++) {
-            final String line = theInput.nextLine();
-            for (int column = 0; column < numColumns; column++) {
-                myGrid[row][column] = Terrain.valueOf(line.charAt(column));
-            }
-        }
-    }
-
-    /**
-     * Reads the vehicle portion of the map file.
-     * 
-     * @param theInput The input scanner.
-     */
-    private void readVehicles(final Scanner theInput) {
-        final int numVehicles = theInput.nextInt();
-        theInput.nextLine();
-        for (int lineCount = 0; lineCount < numVehicles; lineCount++) {
-            final char vehicleType = theInput.next().charAt(0);
-            final int vehicleX = theInput.nextInt();
-            final int vehicleY = theInput.nextInt();
-            final char vehicleDirection = theInput.next().charAt(0);
-
-            switch (vehicleType) {
-                case 'B': // Bicycle
-                    myVehicles.add(new Bicycle(vehicleX, vehicleY,
-                                               Direction.valueOf(vehicleDirection)));
-                    break;
-
-                case 'A': //ATV
-                    myVehicles.add(new Atv(vehicleX, vehicleY,
-                                           Direction.valueOf(vehicleDirection)));
-                    break;
-
-                case 'C': //ATV //you mean CAR?
-                    myVehicles.add(new Car(vehicleX, vehicleY,
-                                           Direction.valueOf(vehicleDirection)));
-                    break;
-                case 'H': // Human
-                    myVehicles.add(new Human(vehicleX, vehicleY,
-                                             Direction.valueOf(vehicleDirection)));
-                    break;
-
-               case 'T': // Truck
-                    myVehicles.add(new Truck(vehicleX, vehicleY,
-                                             Direction.valueOf(vehicleDirection)));
-                    break;
-
-                case 'X': // Taxi
-                    myVehicles.add(new Taxi(vehicleX, vehicleY,
-                                            Direction.valueOf(vehicleDirection)));
-                    break;
-
-                default:
-                    // this should never happen
-                    assert false;
-                    break;
-            }
-            theInput.nextLine();
-        }
-    }
-
     /**
      * Returns a new JButton with the specified text.
      * 
@@ -415,177 +417,311 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
     @Override
     public void actionPerformed(final ActionEvent theEvent) {
         final Object source = theEvent.getSource();
+        boolean repaintAll = true;
         if (source.equals(myTimer)) {
-            // event came from the timer
-            advanceAnimation();
+            // event came from the timer; a decoupled simulation steps itself
+            if (!myRunner.isRunning()) {
+                synchronized (myEngine) {
+                    myEngine.step(myTicksSlider.getValue());
+                }
+            }
+            repaintAll = false;
         } else if (source instanceof JCheckBox) {
-            // event came from the debug box
+            // event came from one of the check boxes
             final JCheckBox box = (JCheckBox) source;
-            myDebugFlag = box.isSelected();
+            if (DECOUPLE_COMMAND.equals(box.getActionCommand())) {
+                myDecoupledFlag = box.isSelected();
+                updateTickRate();
+                if (myTimer.isRunning()) {
+                    stop();
+                    start();
+                }
+            } else {
+                myDebugFlag = box.isSelected();
+            }
         } else {
             // event came from one of the buttons
             final String command = theEvent.getActionCommand().intern();
             if (command.equals(START_COMMAND)) {
-                myTimer.start();
+                start();
             } else if (command.equals(STOP_COMMAND)) {
-                myTimer.stop();
+                stop();
             } else if (command.equals(STEP_COMMAND)) {
-                advanceAnimation();
+                synchronized (myEngine) {
+                    myEngine.step();
+                }
+                repaintAll = false;
             } else if (command.equals(RESET_COMMAND)) {
                 reset();
             }
         }
 
-        myPanel.repaint();
+        if (repaintAll) {
+            synchronized (myEngine) {
+                myEngine.clearDirtyCells();
+                myShownSnapshot = myEngine.takeSnapshot();
+            }
+            myPanel.repaint();
+        } else if (myRunner.isRunning()) {
+            repaintChangedSnapshot();
+        } else {
+            repaintChanged();
+        }
     }
 
     /**
-     * Advances the simulation by one frame of animation, moving each vehicle
-     * once and checking collisions.
+     * Starts the simulation. The timer repaints the panel; it also steps the
+     * simulation unless the simulation is decoupled, in which case the runner
+     * steps it on a thread of its own.
      */
-    private void advanceAnimation() {
-        for (final Vehicle v : myVehicles) {
-            final Map<Direction, Terrain> neighbors = generateNeighbors(v);
-
-            // move the vehicle
-            if (v.isAlive()) {
-                final Direction newDirection = v.chooseDirection(neighbors);
-                v.setDirection(newDirection);
+    private void start() {
+        myTimer.start();
+        if (myDecoupledFlag) {
+            myRunner.start();
+        }
+    }
 
-                // move one square in current direction, if it's okay to do so
-                if (v.canPass(neighbors.get(newDirection), myLights)) {
-                    v.setX(v.getX() + newDirection.dx());
-                    v.setY(v.getY() + newDirection.dy());
-                }
-            } else {
-                // become one move closer to revival
-                v.poke();
-            }
+    /**
+     * Stops the simulation.
+     */
+    private void stop() {
+        myTimer.stop();
+        myRunner.stop();
+    }
 
-            // look for collisions
-            for (final Vehicle other : myVehicles) {
-                if (v == other) { // use of == is intentional - checking for same object
-                    // don't collide with self
-                    continue;
-                }
+    /**
+     * Updates the ticks per frame label and the runner's tick rate from the
+     * sliders. A decoupled simulation runs the chosen number of ticks per
+     * frame at the chosen frame rate, or as fast as possible if the ticks per
+     * frame slider is at its maximum.
+     */
+    private void updateTickRate() {
+        final int ticks = myTicksSlider.getValue();
+        if (myDecoupledFlag && ticks == MAX_TICKS_PER_FRAME) {
+            myTicksLabel.setText("Ticks/Frame: max");
+            myRunner.setTickRate(0);
+        } else {
+            myTicksLabel.setText("Ticks/Frame: " + ticks);
+            myRunner.setTickRate((double) ticks * MY_DELAY_NUMERATOR / myDelay);
+        }
+    }
 
-                if (v.getX() == other.getX() && v.getY() == other.getY()) {
-                    // tell both vehicles they have collided
-                    v.collide(other);
-                    other.collide(v);
-                }
+    /**
+     * Repaints only the squares that changed since the last repaint: the ones
+     * vehicles left, entered, turned, died or revived on, and the squares that
+     * show the lights if the lights changed. Debug mode labels every square
+     * and shows the update number, so it still repaints everything.
+     */
+    private void repaintChanged() {
+        if (myDebugFlag || myEngine.isAllDirty()
+                        || (myEngine.haveLightsChanged() && myLightXs == null)) {
+            myPanel.repaint();
+        } else {
+            for (int i = 0; i < myEngine.getDirtyCellCount(); i++) {
+                repaintSquare(myEngine.getDirtyCellX(i), myEngine.getDirtyCellY(i));
+            }
+            if (myEngine.haveLightsChanged()) {
+                repaintLightSquares();
             }
         }
+        myEngine.clearDirtyCells();
+        myShownSnapshot = myEngine.takeSnapshot();
+    }
 
-        myTimestep++;
-        if (myTimestep % LIGHT_CHANGE_TICKS == 0) {
-            myLights = myLights.advance();
+    /**
+     * Repaints only the squares that changed between the snapshot last shown
+     * and the newest one, without touching the simulation, which is running
+     * on a thread of its own. A square changed if a vehicle left or entered
+     * it, or turned, died or revived on it.
+     */
+    private void repaintChangedSnapshot() {
+        final WorldSnapshot then = myShownSnapshot;
+        final WorldSnapshot now = myEngine.getSnapshot();
+        if (myDebugFlag || then == null || myLightXs == null) {
+            myPanel.repaint();
+        } else if (then != now) {
+            for (int i = 0; i < now.size(); i++) {
+                if (then.getX(i) != now.getX(i) || then.getY(i) != now.getY(i)
+                                || then.getDirection(i) != now.getDirection(i)
+                                || then.isAlive(i) != now.isAlive(i)) {
+                    repaintSquare(then.getX(i), then.getY(i));
+                    repaintSquare(now.getX(i), now.getY(i));
+                }
+            }
+            if (!then.hasSameLights(now)) {
+                repaintLightSquares();
+            }
         }
+        myShownSnapshot = now;
     }
 
     /**
-     * Generates a read-only neighbors map for the specified vehicle.
-     * 
-     * @param theMover The vehicle.
-     * @return The neighbors map.
+     * Asks for the squares that show the lights to be repainted.
      */
-    private Map<Direction, Terrain> generateNeighbors(final Vehicle theMover) {
-        final int x = theMover.getX();
-        final int y = theMover.getY();
-        final Map<Direction, Terrain> result = new HashMap<Direction, Terrain>();
-
-        for (final Direction dir : Direction.values()) {
-            if (isValidIndex(y + dir.dy(), x + dir.dx())) {
-                result.put(dir, myGrid[y + dir.dy()][x + dir.dx()]);
-            }
+    private void repaintLightSquares() {
+        for (int i = 0; i < myLightXs.length; i++) {
+            repaintSquare(myLightXs[i], myLightYs[i]);
         }
-        return Collections.unmodifiableMap(result);
     }
 
     /**
-     * Tests whether the square at the given x/y position exists on the map.
+     * Asks for one square of the panel to be repainted.
      * 
-     * @param theX The x position.
-     * @param theY The y position.
-     * @return true if the position exists on the map, false otherwise.
+     * @param theX The x-coordinate of the square.
+     * @param theY The y-coordinate of the square.
      */
-    private boolean isValidIndex(final int theY, final int theX) {
-        return 0 <= theY && theY < myGrid.length
-                        && 0 <= theX && theX < myGrid[theY].length;
+    private void repaintSquare(final int theX, final int theY) {
+        myPanel.repaint(theX * SQUARE_SIZE, theY * SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE);
     }
 
-
     /**
      * Resets all the vehicles to their initial locations, resets the tick
      * counter, and stops the simulation.
      */
     private void reset() {
-        myTimer.stop();
-        myTimestep = 0;
-        myLights = Light.GREEN;
+        stop();
+        myEngine.reset();
+        myMetrics.reset();
+    }
+
+
 
-        for (final Vehicle mov : myVehicles) {
-            mov.reset();
+    /**
+     * Draws the city map with the specified Graphics2D object. The map is
+     * drawn into the map layer the first time, and after that only the
+     * squares that show the lights are drawn again, when the lights change.
+     * 
+     * @param theGraphics The Graphics2D object.
+     * @param theWorld The snapshot whose lights to show.
+     */
+    private void drawMap(final Graphics2D theGraphics, final WorldSnapshot theWorld) {
+        if (myMapLayer == null) {
+            myMapLights = theWorld;
+            drawMapLayer();
+        } else if (!myMapLights.hasSameLights(theWorld)) {
+            myMapLights = theWorld;
+            drawLightSquares();
+        }
+        theGraphics.drawImage(myMapLayer, 0, 0, null);
+
+        if (myDebugFlag) {
+            for (int y = 0; y < myEngine.getHeight(); y++) {
+                for (int x = 0; x < myEngine.getWidth(); x++) {
+                    drawDebugInfo(theGraphics, x, y);
+                }
+            }
         }
     }
 
+    /**
+     * Draws the whole city map into a new map layer, and finds the squares
+     * that show the lights.
+     */
+    private void drawMapLayer() {
+        myMapLayer = myPanel.getGraphicsConfiguration().createCompatibleImage(
+                        myEngine.getWidth() * SQUARE_SIZE, myEngine.getHeight() * SQUARE_SIZE);
+        final Graphics2D g2 = createMapGraphics();
+        g2.setPaint(myPanel.getBackground());
+        g2.fillRect(0, 0, myMapLayer.getWidth(), myMapLayer.getHeight());
 
+        final List<Integer> lightSquares = new ArrayList<Integer>();
+        for (int y = 0; y < myEngine.getHeight(); y++) {
+            for (int x = 0; x < myEngine.getWidth(); x++) {
+                drawSquare(g2, x, y);
+                if (isTerrain(x, y, Terrain.LIGHT) || isTerrain(x, y, Terrain.CROSSWALK)) {
+                    lightSquares.add(x);
+                    lightSquares.add(y);
+                }
+            }
+        }
+        g2.dispose();
+
+        myLightXs = new int[lightSquares.size() / 2];
+        myLightYs = new int[lightSquares.size() / 2];
+        for (int i = 0; i < myLightXs.length; i++) {
+            myLightXs[i] = lightSquares.get(2 * i);
+            myLightYs[i] = lightSquares.get(2 * i + 1);
+        }
+    }
+
+    /**
+     * Draws the squares that show the lights into the map layer again, each
+     * in the color of its own light in the map layer's snapshot.
+     */
+    private void drawLightSquares() {
+        final Graphics2D g2 = createMapGraphics();
+        for (int i = 0; i < myLightXs.length; i++) {
+            g2.setClip(myLightXs[i] * SQUARE_SIZE, myLightYs[i] * SQUARE_SIZE,
+                       SQUARE_SIZE, SQUARE_SIZE);
+            drawSquare(g2, myLightXs[i], myLightYs[i]);
+        }
+        g2.dispose();
+    }
+
+    /**
+     * Returns a Graphics2D object for drawing into the map layer, set up like
+     * the panel's.
+     * 
+     * @return the Graphics2D object.
+     */
+    private Graphics2D createMapGraphics() {
+        final Graphics2D g2 = myMapLayer.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                            RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setStroke(STROKE);
+        return g2;
+    }
 
     /**
-     * Draws the city map with the specified Graphics2D object.
+     * Draws one square of the city map.
      * 
      * @param theGraphics The Graphics2D object.
+     * @param theX The x-coordinate of the square.
+     * @param theY The y-coordinate of the square.
      */
-    private void drawMap(final Graphics2D theGraphics) {
-        for (int y = 0; y < myGrid.length; y++) {
-            final int topy = y * SQUARE_SIZE;
-
-            for (int x = 0; x < myGrid[y].length; x++) {
-                final int leftx = x * SQUARE_SIZE;
-
-                switch (myGrid[y][x]) {
-                    case STREET:
-                        theGraphics.setPaint(Color.LIGHT_GRAY);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        drawStreetLines(theGraphics, x, y);
-                        break;
-
-                    case WALL:
-                        theGraphics.setPaint(Color.BLACK);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        break;
-
-                    case TRAIL:
-                        theGraphics.setPaint(Color.YELLOW.darker().darker());
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        break;
-
-                    case LIGHT:
-                        // draw a circle of appropriate color
-                        theGraphics.setPaint(Color.LIGHT_GRAY);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        setLightPaint(theGraphics);
-                        theGraphics.fillOval(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        break;
-
-                    case CROSSWALK:
-                        theGraphics.setPaint(Color.LIGHT_GRAY);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-
-                        drawCrossWalkLines(theGraphics, x, y);
-
-                        // draw a small circle of appropriate color centered in the square
-                        setLightPaint(theGraphics);
-                        theGraphics.fillOval(leftx + (int)  (SQUARE_SIZE * CROSSWALK_SCALE),
-                                             topy  + (int) (SQUARE_SIZE * CROSSWALK_SCALE),
-                                             SQUARE_SIZE / 2, SQUARE_SIZE / 2);
-                        break;
-
-                    default:
-                }
+    private void drawSquare(final Graphics2D theGraphics, final int theX, final int theY) {
+        final int topy = theY * SQUARE_SIZE;
+        final int leftx = theX * SQUARE_SIZE;
 
-                drawDebugInfo(theGraphics, x, y);
-            }
+        switch (myEngine.getTerrain(theX, theY)) {
+            case STREET:
+                theGraphics.setPaint(Color.LIGHT_GRAY);
+                theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
+                drawStreetLines(theGraphics, theX, theY);
+                break;
+
+            case WALL:
+                theGraphics.setPaint(Color.BLACK);
+                theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
+                break;
+
+            case TRAIL:
+                theGraphics.setPaint(Color.YELLOW.darker().darker());
+                theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
+                break;
+
+            case LIGHT:
+                // draw a circle of appropriate color
+                theGraphics.setPaint(Color.LIGHT_GRAY);
+                theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
+                setLightPaint(theGraphics, myMapLights.getLightAt(theX, theY));
+                theGraphics.fillOval(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
+                break;
+
+            case CROSSWALK:
+                theGraphics.setPaint(Color.LIGHT_GRAY);
+                theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
+
+                drawCrossWalkLines(theGraphics, theX, theY);
+
+                // draw a small circle of appropriate color centered in the square
+                setLightPaint(theGraphics, myMapLights.getLightAt(theX, theY));
+                theGraphics.fillOval(leftx + (int)  (SQUARE_SIZE * CROSSWALK_SCALE),
+                                     topy  + (int) (SQUARE_SIZE * CROSSWALK_SCALE),
+                                     SQUARE_SIZE / 2, SQUARE_SIZE / 2);
+                break;
+
+            default:
         }
     }
 
@@ -614,20 +750,22 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
      * Draws the debug information for a single Vehicle.
      * 
      * @param theGraphics The graphic context.
-     * @param theVehicle The Vehicle being drawn.
+     * @param theWorld The snapshot being drawn.
+     * @param theIndex The index of the Vehicle being drawn.
      */
-    private void drawDebugInfo(final Graphics2D theGraphics, final Vehicle theVehicle) {
-        int x = theVehicle.getX() * SQUARE_SIZE;
-        int y = theVehicle.getY() * SQUARE_SIZE;
+    private void drawDebugInfo(final Graphics2D theGraphics, final WorldSnapshot theWorld,
+                               final int theIndex) {
+        int x = theWorld.getX(theIndex) * SQUARE_SIZE;
+        int y = theWorld.getY(theIndex) * SQUARE_SIZE;
 
         // draw numbers on each vehicle
         theGraphics.setColor(Color.WHITE);
-        theGraphics.drawString(theVehicle.toString(), x, y + SQUARE_SIZE - 1);
+        theGraphics.drawString(theWorld.getName(theIndex), x, y + SQUARE_SIZE - 1);
         theGraphics.setColor(Color.BLACK);
-        theGraphics.drawString(theVehicle.toString(), x + 1, y + SQUARE_SIZE);
+        theGraphics.drawString(theWorld.getName(theIndex), x + 1, y + SQUARE_SIZE);
 
         // draw arrow on vehicle for its direction
-        final Direction dir = theVehicle.getDirection();
+        final Direction dir = theWorld.getDirection(theIndex);
         int dx = (SQUARE_SIZE - MARKER_SIZE) / 2;
         int dy = dx;
 
@@ -659,13 +797,14 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
     }
 
     /**
-     * Sets the paint color appropriately for the current lights.
+     * Sets the paint color appropriately for a light shown on the map.
      * 
      * @param theGraphics The Graphics2D object on which to set the paint.
+     * @param theLight The light.
      */
-    private void setLightPaint(final Graphics2D theGraphics) {
+    private void setLightPaint(final Graphics2D theGraphics, final Light theLight) {
 
-        switch (myLights) {
+        switch (theLight) {
             case GREEN:
                 theGraphics.setPaint(Color.GREEN.darker());
                 break;
@@ -682,6 +821,19 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
         }
     }
 
+    /**
+     * Tests whether the square at the given x/y position exists on the map and
+     * holds the given terrain.
+     * 
+     * @param theX The x position.
+     * @param theY The y position.
+     * @param theTerrain The terrain to look for.
+     * @return true if the position exists and has that terrain, false otherwise.
+     */
+    private boolean isTerrain(final int theX, final int theY, final Terrain theTerrain) {
+        return myEngine.isValidIndex(theX, theY) && myEngine.getTerrain(theX, theY) == theTerrain;
+    }
+
     /**
      * Draws dotted lines on streets.
      * 
@@ -702,16 +854,16 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
         final int rightx = leftx + SQUARE_SIZE;
         final int bottomy = topy + SQUARE_SIZE;
 
-        if (isValidIndex(theY - 1, theX) && myGrid[theY - 1][theX] == Terrain.STREET) {
+        if (isTerrain(theX, theY - 1, Terrain.STREET)) {
             theGraphics.drawLine(centerx, centery, centerx, topy); // above
         }
-        if (isValidIndex(theY + 1, theX) && myGrid[theY + 1][theX] == Terrain.STREET) {
+        if (isTerrain(theX, theY + 1, Terrain.STREET)) {
             theGraphics.drawLine(centerx, centery, centerx, bottomy); // below
         }
-        if (isValidIndex(theY, theX - 1) && myGrid[theY][theX - 1] == Terrain.STREET) {
+        if (isTerrain(theX - 1, theY, Terrain.STREET)) {
             theGraphics.drawLine(centerx, centery, leftx, centery); // left
         }
-        if (isValidIndex(theY, theX + 1) && myGrid[theY][theX + 1] == Terrain.STREET) {
+        if (isTerrain(theX + 1, theY, Terrain.STREET)) {
             theGraphics.drawLine(centerx, centery, rightx, centery); // right
         }
 
@@ -737,7 +889,7 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
         final int rightx = leftx + SQUARE_SIZE;
         final int bottomy = topy + SQUARE_SIZE;
 
-        if (isValidIndex(theY - 1, theX) && myGrid[theY - 1][theX] == Terrain.GRASS) {
+        if (isTerrain(theX, theY - 1, Terrain.GRASS)) {
             // GRASS is above. Let's assume GRASS is also below.
             // DRAW lines on left and right of light
             theGraphics.drawLine(leftx  + (int) (SQUARE_SIZE * CROSSWALK_SCALE), topy,
@@ -747,7 +899,7 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
         }
 
 
-        if (isValidIndex(theY, theX - 1) && myGrid[theY][theX - 1] == Terrain.GRASS) {
+        if (isTerrain(theX - 1, theY, Terrain.GRASS)) {
             // GRASS is left. Let's assume GRASS is also right.
             // DRAW lines above and below light
             theGraphics.drawLine(leftx, topy + (int) (SQUARE_SIZE * CROSSWALK_SCALE),
@@ -759,6 +911,35 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
         theGraphics.setPaint(oldPaint);
     }
 
+    /**
+     * Draws the measurements of the simulation, one per line, starting at the
+     * given height.
+     * 
+     * @param theGraphics The graphic context.
+     * @param theTop The y-coordinate of the first line.
+     * @param theLineHeight The distance between lines.
+     */
+    private void drawMetrics(final Graphics2D theGraphics, final int theTop,
+                             final int theLineHeight) {
+        final String[] lines = {
+            "Tick (us): mean " + (long) myMetrics.getMeanTickNanos() / NANOS_PER_MICRO
+                + ", p" + (int) TICK_PERCENTILE + " "
+                + myMetrics.getTickNanosPercentile(TICK_PERCENTILE) / NANOS_PER_MICRO
+                + ", max " + myMetrics.getMaxTickNanos() / NANOS_PER_MICRO,
+            "Moved " + myMetrics.getVehiclesMoved() + ", blocked "
+                + myMetrics.getVehiclesBlocked() + " (" + myMetrics.getVehiclesWaiting()
+                + " parked), reversed " + myMetrics.getReversals(),
+            "Deaths " + myMetrics.getDeaths() + ", revivals " + myMetrics.getRevivals()
+                + ", active " + myMetrics.getActiveVehicles() + " of "
+                + myEngine.getVehicles().size(),
+            "Collisions " + myMetrics.getCollisions()
+        };
+        theGraphics.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            theGraphics.drawString(lines[i], DEBUG_OFFSET / 2, theTop + i * theLineHeight);
+        }
+    }
+
     /**
      * A drawing panel for the map.
      */
@@ -782,8 +963,8 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
          */
         EasyStreetPanel() {
             super();
-            setPreferredSize(new Dimension(myGrid[0].length * SQUARE_SIZE,
-                                           myGrid.length * SQUARE_SIZE));
+            setPreferredSize(new Dimension(myEngine.getWidth() * SQUARE_SIZE,
+                                           myEngine.getHeight() * SQUARE_SIZE));
             setBackground(Color.GREEN);
             setFont(myFont);
         }
@@ -804,33 +985,36 @@ public class EasyStreetGUI extends JFrame implements ActionListener {
 
             g2.setStroke(STROKE);
 
-            // draw city map
+            // paint the snapshot whose changes were last asked to be
+            // repainted, which the simulation never changes, even when it is
+            // running on a thread of its own; a newer one may have squares
+            // changed that nobody asked to repaint
+            final WorldSnapshot world = myShownSnapshot;
 
-            drawMap(g2);
+            // draw city map
 
-            // draw vehicles
-            for (final Vehicle v : myVehicles) {
-                final String imageFilename = "icons//" + v.getImageFileName();
-                //final String imageFilename = v.getImageFileName();
-                ImageIcon imgIcon = new ImageIcon(imageFilename);
+            drawMap(g2, world);
 
-                if (imgIcon.getImageLoadStatus() != MediaTracker.COMPLETE) {
-                    imgIcon = new ImageIcon(getClass().getResource(imageFilename));
+            // draw vehicles, skipping those outside the area being repainted
+            final Rectangle clip = g2.getClipBounds();
+            for (int i = 0; i < world.size(); i++) {
+                final int x = world.getX(i) * SQUARE_SIZE;
+                final int y = world.getY(i) * SQUARE_SIZE;
+                if (clip != null && !clip.intersects(x, y, SQUARE_SIZE, SQUARE_SIZE)) {
+                    continue;
                 }
-
-                final Image img = imgIcon.getImage();
-                g2.drawImage(img, v.getX() * SQUARE_SIZE, v.getY() * SQUARE_SIZE,
-                             SQUARE_SIZE, SQUARE_SIZE, this);
+                g2.drawImage(myIcons.get(world.getImageFileName(i)), x, y, this);
 
                 if (myDebugFlag) {
-                    drawDebugInfo(g2, v);
+                    drawDebugInfo(g2, world, i);
                 }
             }
 
             if (myDebugFlag) {
                 g2.setColor(Color.WHITE);
-                g2.drawString("Update # " + myTimestep, DEBUG_OFFSET / 2,
+                g2.drawString("Update # " + world.getTimestep(), DEBUG_OFFSET / 2,
                               myFont.getSize() + DEBUG_OFFSET / 2);
+                drawMetrics(g2, 2 * myFont.getSize() + DEBUG_OFFSET / 2, myFont.getSize());
             }
         }
     } // end class EasyStreetPanel
@@ -0,0 +1,120 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.MediaTracker;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
+
+import model.Vehicle;
+
+/**
+ * A cache of vehicle icons, keyed by image file name (which names the vehicle
+ * type and whether it is alive or dead). Each icon is read once, scaled to
+ * the size of a square and copied into an image compatible with the screen,
+ * so that painting a vehicle is a plain copy with no file access, decoding or
+ * scaling.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+final class IconCache {
+
+    /** The directory holding the icons. */
+    private static final String ICON_DIRECTORY = "icons//";
+
+    /** The suffix of the image file names of living vehicles. */
+    private static final String ALIVE_SUFFIX = ".gif";
+
+    /** The suffix of the image file names of dead vehicles. */
+    private static final String DEAD_SUFFIX = "_dead.gif";
+
+    /** The size in pixels of a side of each icon. */
+    private final int mySize;
+
+    /** The graphics configuration the icons are made compatible with. */
+    private final GraphicsConfiguration myConfiguration;
+
+    /** The icons read so far, keyed by image file name. */
+    private final Map<String, BufferedImage> myIcons;
+
+    /**
+     * Constructs a cache of icons of the given size, and reads the alive and
+     * dead icons of every type among the given vehicles.
+     *
+     * @param theSize The size in pixels of a side of each icon.
+     * @param theVehicles The vehicles whose icons to read now.
+     */
+    IconCache(final int theSize, final List<Vehicle> theVehicles) {
+        mySize = theSize;
+        myConfiguration = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                        .getDefaultScreenDevice().getDefaultConfiguration();
+        myIcons = new HashMap<String, BufferedImage>();
+        for (final Vehicle v : theVehicles) {
+            get(v.toString() + ALIVE_SUFFIX);
+            get(v.toString() + DEAD_SUFFIX);
+            get(v.getImageFileName());
+        }
+    }
+
+    /**
+     * Returns the icon with the given image file name, reading it the first
+     * time it is asked for. An icon that cannot be read is blank.
+     *
+     * @param theFileName The image file name.
+     * @return the icon, scaled to the size of a square.
+     */
+    BufferedImage get(final String theFileName) {
+        BufferedImage result = myIcons.get(theFileName);
+        if (result == null) {
+            result = load(theFileName);
+            myIcons.put(theFileName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Reads an icon from the icons directory, or from the class path if it
+     * is not there, and draws it scaled into a compatible image.
+     *
+     * @param theFileName The image file name.
+     * @return the icon, scaled to the size of a square.
+     */
+    private BufferedImage load(final String theFileName) {
+        final String path = ICON_DIRECTORY + theFileName;
+        ImageIcon imgIcon = new ImageIcon(path);
+        if (imgIcon.getImageLoadStatus() != MediaTracker.COMPLETE) {
+            final URL resource = IconCache.class.getResource(path);
+            if (resource != null) {
+                imgIcon = new ImageIcon(resource);
+            }
+        }
+
+        final BufferedImage result = myConfiguration.createCompatibleImage(mySize, mySize,
+                                                                  Transparency.TRANSLUCENT);
+        if (imgIcon.getImageLoadStatus() == MediaTracker.COMPLETE) {
+            final Image img = imgIcon.getImage();
+            final Graphics2D g2 = result.createGraphics();
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2.drawImage(img, 0, 0, mySize, mySize, null);
+            g2.dispose();
+        }
+        return result;
+    }
+}
+
+// end class IconCache
@@ -0,0 +1,55 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package view;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import model.BinaryCityMap;
+import model.CityMap;
+import model.CityReader;
+
+/**
+ * Converts a city map from the text format of city_map1.txt and
+ * city_map2.txt into the binary format of BinaryCityMap, which can be opened
+ * without parsing. Usage: MapConverter input.txt output.map
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class MapConverter {
+
+    /** The number of command line arguments. */
+    private static final int NUM_ARGS = 2;
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private MapConverter() {
+        // do nothing
+    }
+
+    /**
+     * Converts the map named by the first argument into the file named by the
+     * second.
+     *
+     * @param theArgs The input file name and the output file name.
+     */
+    public static void main(final String... theArgs) {
+        if (theArgs.length == NUM_ARGS) {
+            try (CityMap city = CityReader.load(theArgs[0], null)) {
+                BinaryCityMap.write(city, Paths.get(theArgs[1]));
+            } catch (final IOException e) {
+                System.err.println("Could not convert " + theArgs[0] + ": " + e.getMessage());
+                System.exit(1);
+            }
+        } else {
+            System.err.println("Usage: MapConverter input.txt output.map");
+            System.exit(1);
+        }
+    }
+}
+
+// end class MapConverter
@@ -0,0 +1,71 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package view;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import model.BinaryCityMap;
+import model.CityGenerator;
+import model.CityMap;
+
+/**
+ * Generates a synthetic city with CityGenerator and writes it to a file, in
+ * the binary format of BinaryCityMap if the file name ends in ".map" and in
+ * the text format of city_map1.txt otherwise. Usage:
+ * MapGenerator width height vehicles seed output
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class MapGenerator {
+
+    /** The number of command line arguments. */
+    private static final int NUM_ARGS = 5;
+
+    /** The extension of binary map files. */
+    private static final String BINARY_EXTENSION = ".map";
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private MapGenerator() {
+        // do nothing
+    }
+
+    /**
+     * Generates the city described by the arguments.
+     *
+     * @param theArgs The width, height, number of vehicles, seed and output
+     *            file name.
+     */
+    public static void main(final String... theArgs) {
+        if (theArgs.length == NUM_ARGS) {
+            try {
+                int arg = 0;
+                final int width = Integer.parseInt(theArgs[arg++]);
+                final int height = Integer.parseInt(theArgs[arg++]);
+                final int vehicles = Integer.parseInt(theArgs[arg++]);
+                final long seed = Long.parseLong(theArgs[arg++]);
+                final Path output = Paths.get(theArgs[arg]);
+                final CityMap city = CityGenerator.generate(width, height, vehicles, seed);
+                if (output.toString().endsWith(BINARY_EXTENSION)) {
+                    BinaryCityMap.write(city, output);
+                } else {
+                    CityGenerator.writeText(city, output);
+                }
+            } catch (final IOException | IllegalArgumentException e) {
+                System.err.println("Could not generate the city: " + e.getMessage());
+                System.exit(1);
+            }
+        } else {
+            System.err.println("Usage: MapGenerator width height vehicles seed output");
+            System.exit(1);
+        }
+    }
+}
+
+// end class MapGenerator
@@ -0,0 +1,151 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package view;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import model.CityMap;
+import model.CityReader;
+import model.ScenarioExecutor;
+import model.SimulationEngine;
+import model.TrafficSignals;
+import model.Vehicle;
+
+/**
+ * Sweeps the length of the light phases over a city, running one scenario
+ * per phase length and seed on a ScenarioExecutor. Every intersection gets
+ * green, yellow and red phases of the same length, as LIGHT_CHANGE_TICKS
+ * gives them, and each scenario writes the number of dead and active
+ * vehicles every REPORT_TICKS ticks to a CSV file of its own. Usage:
+ * ScenarioSweep map ticks seeds outputDirectory phaseTicks...
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+public final class ScenarioSweep {
+
+    /** The number of ticks between lines of a scenario's output. */
+    public static final int REPORT_TICKS = 1000;
+
+    /** The least number of command line arguments. */
+    private static final int MIN_ARGS = 5;
+
+    /** The header line of each scenario's output. */
+    private static final String HEADER = "tick,dead,active";
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private ScenarioSweep() {
+        // do nothing
+    }
+
+    /**
+     * Runs the sweep described by the arguments.
+     *
+     * @param theArgs The map file name, the number of ticks per scenario, the
+     *            number of seeds per phase length, the output directory, and
+     *            the phase lengths to try.
+     */
+    public static void main(final String... theArgs) {
+        if (theArgs.length >= MIN_ARGS) {
+            try (CityMap city = CityReader.load(theArgs[0], null)) {
+                int arg = 1;
+                final long ticks = Long.parseLong(theArgs[arg++]);
+                final int seeds = Integer.parseInt(theArgs[arg++]);
+                final Path directory = Files.createDirectories(Paths.get(theArgs[arg++]));
+
+                // signals never change, so every scenario of a phase length
+                // can share one set
+                final TrafficSignals defaults = new TrafficSignals(city.getGrid());
+                final List<Future<Path>> scenarios = new ArrayList<>();
+                try (ScenarioExecutor executor = new ScenarioExecutor()) {
+                    for (; arg < theArgs.length; arg++) {
+                        final int phase = Integer.parseInt(theArgs[arg]);
+                        final int[] phases = new int[defaults.getIntersectionCount()];
+                        Arrays.fill(phases, phase);
+                        final TrafficSignals signals = defaults.withTimings(
+                            phases, phases, phases, new int[phases.length]);
+                        for (int seed = 0; seed < seeds; seed++) {
+                            final Path output =
+                                directory.resolve("phase-" + phase + "-seed-" + seed + ".csv");
+                            final long scenarioSeed = seed;
+                            scenarios.add(executor.submit(() -> runScenario(
+                                executor, city, signals, scenarioSeed, ticks, output)));
+                        }
+                    }
+                }
+                for (final Future<Path> scenario : scenarios) {
+                    scenario.get();
+                }
+                System.err.println(scenarios.size() + " scenarios written to " + directory);
+            } catch (final IOException | IllegalArgumentException e) {
+                System.err.println("Could not run the sweep: " + e.getMessage());
+                System.exit(1);
+            } catch (final ExecutionException e) {
+                System.err.println("A scenario failed: " + e.getCause());
+                System.exit(1);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.exit(1);
+            }
+        } else {
+            System.err.println("Usage: ScenarioSweep map ticks seeds outputDirectory"
+                               + " phaseTicks...");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs one scenario, writing its output as it goes. Only the ticks hold
+     * one of the executor's permits; writing the output does not.
+     *
+     * @param theExecutor The executor running the scenario.
+     * @param theCity The city.
+     * @param theSignals The signals, shared with other scenarios.
+     * @param theSeed The seed.
+     * @param theTicks The number of ticks to run.
+     * @param theOutput The file to write.
+     * @return the file written.
+     * @throws IOException if the file cannot be written.
+     * @throws InterruptedException if the scenario is interrupted.
+     */
+    private static Path runScenario(final ScenarioExecutor theExecutor, final CityMap theCity,
+                                    final TrafficSignals theSignals, final long theSeed,
+                                    final long theTicks, final Path theOutput)
+        throws IOException, InterruptedException {
+        final SimulationEngine engine = theCity.newEngine();
+        engine.setSeed(theSeed);
+        engine.setSignals(theSignals);
+        try (Writer out = Files.newBufferedWriter(theOutput, StandardCharsets.US_ASCII)) {
+            out.write(HEADER + "\n");
+            while (engine.getTimestep() < theTicks) {
+                theExecutor.step(engine, Math.min(REPORT_TICKS,
+                                                  theTicks - engine.getTimestep()));
+                int dead = 0;
+                for (final Vehicle v : engine.getVehicles()) {
+                    if (!v.isAlive()) {
+                        dead++;
+                    }
+                }
+                out.write(engine.getTimestep() + "," + dead + ","
+                          + engine.getActiveVehicleCount() + "\n");
+            }
+        }
+        return theOutput;
+    }
+}
+
+// end class ScenarioSweep
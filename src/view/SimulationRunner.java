@@ -0,0 +1,129 @@
+/*
+ * TCSS 305 - Easy Street
+ */
+
+package view;
+
+import java.util.concurrent.locks.LockSupport;
+
+import model.SimulationEngine;
+
+/**
+ * Runs a simulation on a thread of its own, at a tick rate that does not
+ * depend on how often the display is repainted. The runner holds the
+ * engine's monitor while it steps the engine, so anything that reads the
+ * engine from another thread must synchronize on the engine too.
+ *
+ * @author Tanner Brown
+ * @version 1.0
+ */
+final class SimulationRunner implements Runnable {
+
+    /** The number of nanoseconds in a second. */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * How far, in nanoseconds, the runner may fall behind its schedule before
+     * it gives up catching up.
+     */
+    private static final long MAX_LAG = NANOS_PER_SECOND / 10;
+
+    /** The simulation being run. */
+    private final SimulationEngine myEngine;
+
+    /** The time between ticks in nanoseconds, or 0 to run as fast as possible. */
+    private volatile long myNanosPerTick;
+
+    /** The thread running the simulation, or null if it is stopped. */
+    private Thread myThread;
+
+    /**
+     * Constructs a stopped runner for the given simulation.
+     *
+     * @param theEngine The simulation to run.
+     */
+    SimulationRunner(final SimulationEngine theEngine) {
+        myEngine = theEngine;
+    }
+
+    /**
+     * Sets how many ticks to run per second. The change takes effect on the
+     * next tick, even if the runner is running.
+     *
+     * @param theTicksPerSecond The tick rate, or 0 to run as fast as possible.
+     */
+    void setTickRate(final double theTicksPerSecond) {
+        if (theTicksPerSecond < 0) {
+            throw new IllegalArgumentException("The tick rate must not be negative");
+        }
+        if (theTicksPerSecond == 0) {
+            myNanosPerTick = 0;
+        } else {
+            myNanosPerTick = Math.max(1, Math.round(NANOS_PER_SECOND / theTicksPerSecond));
+        }
+    }
+
+    /**
+     * Starts running the simulation, if it is not running already.
+     */
+    void start() {
+        if (myThread == null) {
+            myThread = new Thread(this, "Easy Street simulation");
+            myThread.setDaemon(true);
+            myThread.start();
+        }
+    }
+
+    /**
+     * Stops running the simulation and waits for the tick in progress to end.
+     */
+    void stop() {
+        if (myThread != null) {
+            myThread.interrupt();
+            try {
+                myThread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            myThread = null;
+        }
+    }
+
+    /**
+     * Returns whether the simulation is running.
+     *
+     * @return true if the simulation is running.
+     */
+    boolean isRunning() {
+        return myThread != null;
+    }
+
+    /**
+     * Steps the simulation until the thread is interrupted, pausing between
+     * ticks to keep to the tick rate.
+     */
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            synchronized (myEngine) {
+                myEngine.step();
+            }
+
+            final long nanosPerTick = myNanosPerTick;
+            if (nanosPerTick > 0) {
+                next += nanosPerTick;
+                final long now = System.nanoTime();
+                if (now - next > MAX_LAG) {
+                    next = now;
+                }
+                while (next - System.nanoTime() > 0
+                                && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(next - System.nanoTime());
+                }
+            }
+        }
+    }
+}
+
+// end class SimulationRunner